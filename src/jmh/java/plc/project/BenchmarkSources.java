@@ -0,0 +1,77 @@
+package plc.project;
+
+/**
+ * Generates large, valid PLC sources for the benchmarks. The shape roughly
+ * follows our generated programs: many small functions with a mix of literals,
+ * declarations, control flow and arithmetic.
+ */
+final class BenchmarkSources {
+
+    private BenchmarkSources() {}
+
+    static String generate(int functions) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("VAR counter: Integer = 0;\n");
+        builder.append("LIST values: Integer = [1, 2, 3, 4, 5];\n");
+        for (int i = 0; i < functions; i++) {
+            builder.append("FUN function").append(i).append("(a: Integer, b: Decimal): Integer DO\n");
+            builder.append("    LET name: String = \"function\\t").append(i).append("\\n\";\n");
+            builder.append("    LET initial: Character = 'f';\n");
+            builder.append("    LET scale: Decimal = b * 2.5 + 0.125;\n");
+            builder.append("    IF a < ").append(i).append(" && a != 0 DO\n");
+            builder.append("        a = a * 2 + (a / 3) + -").append(i % 7).append(";\n");
+            builder.append("    ELSE\n");
+            builder.append("        print(name);\n");
+            builder.append("    END\n");
+            builder.append("    WHILE a > 0 DO\n");
+            builder.append("        a = a + -1;\n");
+            builder.append("    END\n");
+            builder.append("    RETURN a;\n");
+            builder.append("END\n");
+        }
+        builder.append("FUN main(): Integer DO\n    RETURN function0(1, 1.0);\nEND\n");
+        return builder.toString();
+    }
+
+    /**
+     * Generates a source dominated by long arithmetic and logical expressions,
+     * with every precedence level and grouping mixed in.
+     */
+    static String expressions(int functions) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < functions; i++) {
+            builder.append("FUN expressions").append(i).append("(a: Integer, b: Integer): Integer DO\n");
+            builder.append("    LET x = a + b * 2 + (a / 3) * b ^ 2 + ").append(i).append(";\n");
+            builder.append("    LET y = a * b + a * b + a / b + (a + b) * (a / b) + 1 + 2 * 3;\n");
+            builder.append("    LET z = x < y && y != 0 && x + 1 > y * 2 && a == b;\n");
+            builder.append("    x = f(x + 1, y * 2) + values[a] * (x / y) / 2;\n");
+            builder.append("END\n");
+        }
+        return builder.toString();
+    }
+
+
+    /**
+     * Generates a source whose {@code main} runs a loop of the given number
+     * of iterations over assignments, arithmetic, comparisons and list
+     * accesses, and returns the total.
+     */
+    static String loops(int iterations) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("VAR total: Integer = 0;\n");
+        builder.append("LIST values: Integer = [1, 2, 3, 4, 5];\n");
+        builder.append("FUN main(): Integer DO\n");
+        builder.append("    LET i: Integer = 0;\n");
+        builder.append("    LET j: Integer = 0;\n");
+        builder.append("    WHILE i < ").append(iterations).append(" DO\n");
+        builder.append("        j = i / ").append((iterations + 4) / 5).append(";\n");
+        builder.append("        total = total + values[j] * 2 + (i / 3);\n");
+        builder.append("        IF i == j DO total = total + 1; END\n");
+        builder.append("        i = i + 1;\n");
+        builder.append("    END\n");
+        builder.append("    RETURN total;\n");
+        builder.append("END\n");
+        return builder.toString();
+    }
+
+}
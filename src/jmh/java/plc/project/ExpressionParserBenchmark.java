@@ -0,0 +1,54 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the recursive descent cascade with precedence climbing on an
+ * expression heavy source, run with
+ * {@code ./gradlew jmh -Pjmh=ExpressionParserBenchmark}.
+ *
+ * Descent enters six methods before reaching the first operand of an
+ * expression and tries eleven operator kinds after each operand, where
+ * precedence climbing enters three and does one table lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpressionParserBenchmark {
+
+    @Param({"100", "1000"})
+    public int functions;
+
+    @Param({"DESCENT", "PRATT"})
+    public Parser.Mode mode;
+
+    private TokenBuffer tokens;
+
+    @Setup
+    public void setup() {
+        tokens = new Lexer(BenchmarkSources.expressions(functions)).lexBuffer();
+    }
+
+    @Benchmark
+    public Ast.Source parse() {
+        Parser parser = new Parser(tokens);
+        parser.setMode(mode);
+        return parser.parseSource();
+    }
+
+}
@@ -0,0 +1,73 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of a keystroke in the middle of a large input, typing
+ * and then deleting a character, with {@link IncrementalParser#reparse} against
+ * parsing from scratch. Run with {@code ./gradlew jmh
+ * -Pjmh=IncrementalParserBenchmark}; 3600 functions is about 50k lines.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IncrementalParserBenchmark {
+
+    @Param({"3600"})
+    public int functions;
+
+    private String[] inputs;
+    private TokenBuffer[] tokens;
+    private int offset;
+    private int edits;
+
+    private IncrementalParser parser;
+    private Ast.Source source;
+
+    @Setup
+    public void setup() {
+        String input = BenchmarkSources.generate(functions);
+        offset = input.indexOf("a = a + -1;", input.length() / 2) + 4;
+        inputs = new String[] {input, input.substring(0, offset) + "b" + input.substring(offset)};
+        tokens = new TokenBuffer[] {new Lexer(inputs[0]).lexBuffer(), new Lexer(inputs[1]).lexBuffer()};
+        parser = new IncrementalParser();
+        source = parser.parse(tokens[0]);
+        edits = 0;
+    }
+
+    @Benchmark
+    public Ast.Source reparse() {
+        boolean insert = edits++ % 2 == 0;
+        TokenBuffer edited = tokens[insert ? 1 : 0];
+        return source = parser.reparse(source, offset, insert ? 0 : 1, insert ? 1 : 0, edited);
+    }
+
+    @Benchmark
+    public Ast.Source relexAndReparse() {
+        boolean insert = edits++ % 2 == 0;
+        TokenBuffer previous = tokens[insert ? 0 : 1];
+        TokenBuffer edited = new Lexer(inputs[insert ? 1 : 0]).relex(previous, offset, insert ? 0 : 1, insert ? 1 : 0);
+        return source = parser.reparse(source, offset, insert ? 0 : 1, insert ? 1 : 0, edited);
+    }
+
+    @Benchmark
+    public Ast.Source full() {
+        return new Parser(tokens[edits++ % 2]).parseSource();
+    }
+
+}
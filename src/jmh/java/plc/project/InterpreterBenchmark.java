@@ -0,0 +1,45 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the interpreter on a loop of assignments, arithmetic, comparisons
+ * and list accesses, where most of the time goes to visiting small nodes. Run
+ * with {@code ./gradlew jmh -Pjmh=InterpreterBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InterpreterBenchmark {
+
+    @Param({"10000"})
+    public int iterations;
+
+    private Ast.Source source;
+
+    @Setup
+    public void setup() {
+        source = new Parser(new Lexer(BenchmarkSources.loops(iterations)).lexBuffer()).parseSource();
+    }
+
+    @Benchmark
+    public Object interpret() {
+        return new Interpreter(new plc.project.Scope(null)).visit(source).getValue();
+    }
+
+}
@@ -0,0 +1,48 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the regex based lexer with the character class table, run with
+ * {@code ./gradlew jmh -Pjmh=LexerBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LexerBenchmark {
+
+    @Param({"100", "1000"})
+    public int functions;
+
+    @Param({"REGEX", "TABLE"})
+    public Lexer.Mode mode;
+
+    private String input;
+
+    @Setup
+    public void setup() {
+        input = BenchmarkSources.generate(functions);
+    }
+
+    @Benchmark
+    public List<Token> lex() {
+        return new Lexer(input, mode).lex();
+    }
+
+}
@@ -0,0 +1,62 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how {@link Lexer#lexParallel(ForkJoinPool)} scales with the pool
+ * size against the sequential {@link Lexer#lexBuffer()}, run with
+ * {@code ./gradlew jmh -Pjmh=ParallelLexerBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelLexerBenchmark {
+
+    @Param({"20000"})
+    public int functions;
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int parallelism;
+
+    private String input;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup() {
+        input = BenchmarkSources.generate(functions);
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public TokenBuffer sequential() {
+        return new Lexer(input).lexBuffer();
+    }
+
+    @Benchmark
+    public TokenBuffer parallel() {
+        return new Lexer(input).lexParallel(pool);
+    }
+
+}
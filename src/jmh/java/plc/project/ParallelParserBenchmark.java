@@ -0,0 +1,63 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how {@link Parser#parseSourceParallel(ForkJoinPool)} scales with
+ * the pool size against the sequential {@link Parser#parseSource()}, run with
+ * {@code ./gradlew jmh -Pjmh=ParallelParserBenchmark}. The tokens are lexed
+ * once, since parsing only reads them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelParserBenchmark {
+
+    @Param({"20000"})
+    public int functions;
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int parallelism;
+
+    private TokenBuffer tokens;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup() {
+        tokens = new Lexer(BenchmarkSources.generate(functions)).lexBuffer();
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public Ast.Source sequential() {
+        return new Parser(tokens).parseSource();
+    }
+
+    @Benchmark
+    public Ast.Source parallel() {
+        return new Parser(tokens).parseSourceParallel(pool);
+    }
+
+}
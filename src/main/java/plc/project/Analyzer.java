@@ -3,9 +3,13 @@ package plc.project;
 import javax.swing.text.html.Option;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -15,9 +19,77 @@ import java.util.stream.Collectors;
 public final class Analyzer implements Ast.Visitor<Void> {
 
     public Scope scope;
+    private final Annotations annotations;
     private Ast.Function function;
+    private boolean reachableOnly = false;
+
+    /**
+     * The functions not yet reached from {@code main}, by {@code name/arity},
+     * and those reached but not yet analyzed. Both are null unless analyzing a
+     * source with {@link #setReachableOnly(boolean)}.
+     */
+    private Map<String, Ast.Function> unreached;
+    private Deque<Ast.Function> reached;
+
+    /**
+     * Analyzes chains of binary expressions, groups and calls without
+     * recursing per level, see {@link ExpressionWalker}.
+     */
+    private final ExpressionWalker<Void> expressions = new ExpressionWalker<Void>() {
+
+        @Override
+        protected Void leaf(Ast.Expression ast) {
+            return Analyzer.this.visit(ast);
+        }
+
+        @Override
+        protected Void exit(Ast.Expression.Binary ast, Void left, Void right) {
+            return type(ast);
+        }
+
+        @Override
+        protected void enter(Ast.Expression.Group ast) {
+            if(!(ast.getExpression() instanceof Ast.Expression.Binary))
+                throw new RuntimeException("NOT BINARY");
+        }
+
+        @Override
+        protected Void exit(Ast.Expression.Group ast, Void expression) {
+            annotations.setType(ast, annotations.getType(ast.getExpression()));
+            return null;
+        }
+
+        @Override
+        protected void enter(Ast.Expression.Function ast) {
+            String name = ast.getName();
+            annotations.setFunction(ast, scope.lookupFunction(name, ast.getArguments().size()));
+            if (reached != null) {
+                reach(name, ast.getArguments().size());
+            }
+        }
+
+        @Override
+        protected void argument(Ast.Expression.Function ast, int index, Void result) {
+            requireAssignable(annotations.getFunction(ast).getParameterTypes().get(index), annotations.getType(ast.getArguments().get(index)));
+        }
+
+        @Override
+        protected Void exit(Ast.Expression.Function ast, List<Void> arguments) {
+            return null;
+        }
+
+    };
 
     public Analyzer(Scope parent) {
+        this(parent, Annotations.IN_NODES);
+    }
+
+    /**
+     * Creates an analyzer which records its results in the given annotations
+     * rather than the nodes, see {@link Annotations#table()}.
+     */
+    public Analyzer(Scope parent, Annotations annotations) {
+        this.annotations = annotations;
         scope = new Scope(parent);
         scope.defineFunction("print", "System.out.println", Arrays.asList(Environment.Type.ANY), Environment.Type.NIL, args -> Environment.NIL);
     }
@@ -26,10 +98,29 @@ public final class Analyzer implements Ast.Visitor<Void> {
         return scope;
     }
 
+    public Annotations getAnnotations() {
+        return annotations;
+    }
+
+    /**
+     * When set, analyzing a source declares every function first and then
+     * only analyzes the bodies of those reachable from {@code main} through
+     * calls. Functions may then be called before they are declared, and an
+     * unreachable body is never checked, nor parsed if it is lazy (see {@link
+     * Parser#setLazy(boolean)}).
+     */
+    public void setReachableOnly(boolean reachableOnly) {
+        this.reachableOnly = reachableOnly;
+    }
+
     @Override
     public Void visit(Ast.Source ast) {
         ast.getGlobals().forEach(this::visit);
-        ast.getFunctions().forEach(this::visit);
+        if (reachableOnly) {
+            visitReachable(ast.getFunctions());
+        } else {
+            ast.getFunctions().forEach(this::visit);
+        }
 
         if(!scope.lookupFunction("main", 0).getReturnType().equals(Environment.Type.INTEGER))
             throw new RuntimeException("not int");
@@ -44,51 +135,81 @@ public final class Analyzer implements Ast.Visitor<Void> {
         if(ast.getValue().isPresent()){
             Ast.Expression value = ast.getValue().get();
             if(value instanceof Ast.Expression.PlcList)
-                ((Ast.Expression.PlcList) value).setType(Environment.getType(ast.getTypeName()));
+                annotations.setType(value, Environment.getType(ast.getTypeName()));
             visit(value);
-            requireAssignable(Environment.getType(ast.getTypeName()), value.getType());
+            requireAssignable(Environment.getType(ast.getTypeName()), annotations.getType(value));
         }
 
         scope.defineVariable(name, name, Environment.getType(ast.getTypeName()), ast.getMutable(), Environment.NIL);
-        ast.setVariable(scope.lookupVariable(name));
+        annotations.setVariable(ast, scope.lookupVariable(name));
         return null;
     }
 
+    /**
+     * Declares every function, then analyzes the bodies reachable from {@code
+     * main} as {@link #visit(Ast.Expression.Function)} finds calls to them.
+     */
+    private void visitReachable(List<Ast.Function> functions) {
+        unreached = new HashMap<>();
+        reached = new ArrayDeque<>();
+        try {
+            for (Ast.Function function : functions) {
+                declare(function);
+                unreached.put(function.getName() + "/" + function.getParameters().size(), function);
+            }
+            reach("main", 0);
+            while (!reached.isEmpty()) {
+                visitBody(reached.poll());
+            }
+        } finally {
+            unreached = null;
+            reached = null;
+        }
+    }
+
+    private void reach(String name, int arity) {
+        Ast.Function function = unreached.remove(name + "/" + arity);
+        if (function != null) {
+            reached.add(function);
+        }
+    }
+
     @Override
     public Void visit(Ast.Function ast) {
+        declare(ast);
+        visitBody(ast);
+        return null;
+    }
+
+    private void declare(Ast.Function ast) {
         List<Environment.Type> TypeList = new ArrayList<>();
-        //String name = ast.getName();
 
         for(int i = 0; i < ast.getParameterTypeNames().size(); i++){
             TypeList.add(Environment.getType(ast.getParameterTypeNames().get(i)));
         }
-        Environment.Type func = Environment.NIL.getType();
 
+        annotations.setFunction(ast, scope.defineFunction(ast.getName(), ast.getName(), TypeList, Environment.getType(ast.getReturnTypeName().orElse("NIL")), args -> Environment.NIL));
+    }
+
+    private void visitBody(Ast.Function ast) {
+        Environment.Type func = Environment.NIL.getType();
 
         if(ast.getReturnTypeName().isPresent()){
             func = Environment.getType(ast.getReturnTypeName().get());
         }
 
-        scope.defineVariable("func","func", func, true, Environment.NIL);
-
-        scope.defineFunction(ast.getName(), ast.getName(), TypeList, Environment.getType(ast.getReturnTypeName().orElse("NIL")), args -> Environment.NIL);
-
         scope = new Scope(scope);
 
+        // Defined in the function's own scope, so each function has its own
+        // return type for visit(Ast.Statement.Return).
+        scope.defineVariable("func","func", func, true, Environment.NIL);
+
         for (int j = 0; j < ast.getParameters().size(); j++) {
             scope.defineVariable(ast.getParameters().get(j), ast.getParameters().get(j), Environment.getType(ast.getParameterTypeNames().get(j)), true, Environment.NIL);
         }
 
         ast.getStatements().forEach(this::visit);
-        ast.setFunction(scope.lookupFunction(ast.getName(), ast.getParameters().size()));
         scope = scope.getParent();
-
-
-        //function = null;
-
-        return null;
-
-        // throw new UnsupportedOperationException();  // TODO
     }
 
     @Override
@@ -121,11 +242,11 @@ public final class Analyzer implements Ast.Visitor<Void> {
             visit(ast.getValue().get());
 
             if(type == null)
-                type = ast.getValue().get().getType();
+                type = annotations.getType(ast.getValue().get());
 
-            requireAssignable(type, ast.getValue().get().getType());
+            requireAssignable(type, annotations.getType(ast.getValue().get()));
         }
-        ast.setVariable(scope.defineVariable(ast.getName(),
+        annotations.setVariable(ast, scope.defineVariable(ast.getName(),
                 ast.getName(),
                 type,
                 true,
@@ -145,7 +266,7 @@ public final class Analyzer implements Ast.Visitor<Void> {
         if(!(receiver instanceof Ast.Expression.Access))
             throw new RuntimeException("Not an access expression");
 
-        requireAssignable(receiver.getType(), value.getType());
+        requireAssignable(annotations.getType(receiver), annotations.getType(value));
 
         return null;
     }
@@ -157,7 +278,7 @@ public final class Analyzer implements Ast.Visitor<Void> {
         Ast.Expression condition = ast.getCondition();
         visit(condition);
 
-        if(!(condition.getType().equals(Environment.Type.BOOLEAN)))
+        if(!(annotations.getType(condition).equals(Environment.Type.BOOLEAN)))
             throw new RuntimeException("Condition does not evaluate to type boolean");
         else if (thenStmts.isEmpty())
             throw new RuntimeException("Empty statement");
@@ -189,7 +310,7 @@ public final class Analyzer implements Ast.Visitor<Void> {
         for(Ast.Statement.Case cases_ : cases) {
             if(cases_.getValue().isPresent()) {
                 visit(cases_.getValue().get());
-                requireAssignable(condition.getType(), cases_.getValue().get().getType());
+                requireAssignable(annotations.getType(condition), annotations.getType(cases_.getValue().get()));
             }
             scope = new Scope(scope);
             visit(cases_);
@@ -213,7 +334,7 @@ public final class Analyzer implements Ast.Visitor<Void> {
     public Void visit(Ast.Statement.While ast) {
         visit(ast.getCondition());
 
-        if(!(ast.getCondition().getType().equals(Environment.Type.BOOLEAN)))
+        if(!(annotations.getType(ast.getCondition()).equals(Environment.Type.BOOLEAN)))
             throw new RuntimeException("Condition does not evaluate to boolean");
 
         List<Ast.Statement> statements = ast.getStatements();
@@ -229,55 +350,53 @@ public final class Analyzer implements Ast.Visitor<Void> {
     public Void visit(Ast.Statement.Return ast) {
         visit(ast.getValue());
         Environment.Variable ret = scope.lookupVariable("func");
-        requireAssignable(ast.getValue().getType(), ret.getType());
+        requireAssignable(annotations.getType(ast.getValue()), ret.getType());
         return null;
     }
 
     @Override
     public Void visit(Ast.Expression.Literal ast) {
-        if(ast.getLiteral() instanceof Boolean) ast.setType(Environment.Type.BOOLEAN);
-        else if (ast.getLiteral() instanceof String) ast.setType(Environment.Type.STRING);
-        else if (ast.getLiteral() instanceof Character) ast.setType(Environment.Type.CHARACTER);
+        if(ast.getLiteral() instanceof Boolean) annotations.setType(ast, Environment.Type.BOOLEAN);
+        else if (ast.getLiteral() instanceof String) annotations.setType(ast, Environment.Type.STRING);
+        else if (ast.getLiteral() instanceof Character) annotations.setType(ast, Environment.Type.CHARACTER);
         else if (ast.getLiteral() instanceof BigInteger) {
             if(((BigInteger) ast.getLiteral()).bitCount() > 32)
                 throw new RuntimeException("BigInteger too large (>32 bits)");
-            ast.setType(Environment.Type.INTEGER);
+            annotations.setType(ast, Environment.Type.INTEGER);
         }
         else if (ast.getLiteral() instanceof BigDecimal) {
             if(((BigDecimal) ast.getLiteral()).doubleValue() == Double.POSITIVE_INFINITY || ((BigDecimal) ast.getLiteral()).doubleValue() == Double.NEGATIVE_INFINITY)
                 throw new RuntimeException("BigDecimal is too large (>64 bits)");
-            ast.setType(Environment.Type.DECIMAL);
+            annotations.setType(ast, Environment.Type.DECIMAL);
         }
-        else if (ast.getLiteral() == null) ast.setType(Environment.Type.NIL);
+        else if (ast.getLiteral() == null) annotations.setType(ast, Environment.Type.NIL);
 
         return null;
     }
 
     @Override
     public Void visit(Ast.Expression.Group ast) {
-
-        if(!(ast.getExpression() instanceof Ast.Expression.Binary))
-            throw new RuntimeException("NOT BINARY");
-
-        visit(ast.getExpression());
-        ast.setType(ast.getExpression().getType());
-
-        return null;
+        return expressions.walk(ast);
     }
 
     @Override
     public Void visit(Ast.Expression.Binary ast) {
+        return expressions.walk(ast);
+    }
+
+    /**
+     * Sets the type of a binary expression whose operands have been analyzed.
+     */
+    private Void type(Ast.Expression.Binary ast) {
         String operator = ast.getOperator().toString();
-        visit(ast.getLeft());
-        visit(ast.getRight());
-        Environment.Type leftType = ast.getLeft().getType();
-        Environment.Type rightType = ast.getRight().getType();
+        Environment.Type leftType = annotations.getType(ast.getLeft());
+        Environment.Type rightType = annotations.getType(ast.getRight());
 
         switch (operator) {
             case "&&":
             case "||":
                 if (leftType.equals(rightType) && leftType.equals(Environment.Type.BOOLEAN)) {
-                    ast.setType(Environment.Type.BOOLEAN);
+                    annotations.setType(ast, Environment.Type.BOOLEAN);
                     return null;
                 }
                 throw new RuntimeException("Mismatched types");
@@ -287,22 +406,22 @@ public final class Analyzer implements Ast.Visitor<Void> {
             case "!=":
                 if (leftType.equals(rightType) && (leftType.equals(Environment.Type.INTEGER) || leftType.equals(Environment.Type.DECIMAL)
                         || leftType.equals(Environment.Type.CHARACTER) || leftType.equals(Environment.Type.STRING))) {
-                    ast.setType(Environment.Type.COMPARABLE);
+                    annotations.setType(ast, Environment.Type.COMPARABLE);
                     return null;
                 }
                 throw new RuntimeException("Mismatched types");
             case "+":
 
                 if (leftType.equals(Environment.Type.STRING) || rightType.equals(Environment.Type.STRING)) {
-                    ast.setType(Environment.Type.STRING);
+                    annotations.setType(ast, Environment.Type.STRING);
                 } else if (leftType.equals(Environment.Type.INTEGER)) {
                     if (!(rightType.equals(Environment.Type.INTEGER)))
                         throw new RuntimeException("Mismatched types");
-                    ast.setType(Environment.Type.INTEGER);
-                } else if (ast.getLeft().getType().equals(Environment.Type.DECIMAL)) {
-                    if (!(ast.getRight().getType().equals(Environment.Type.DECIMAL)))
+                    annotations.setType(ast, Environment.Type.INTEGER);
+                } else if (annotations.getType(ast.getLeft()).equals(Environment.Type.DECIMAL)) {
+                    if (!(annotations.getType(ast.getRight()).equals(Environment.Type.DECIMAL)))
                         throw new RuntimeException("Mismatched types");
-                    ast.setType(Environment.Type.DECIMAL);
+                    annotations.setType(ast, Environment.Type.DECIMAL);
                 }
 
                 return null;
@@ -311,11 +430,11 @@ public final class Analyzer implements Ast.Visitor<Void> {
             case "/":
                 if (!(leftType.equals(rightType)))
                     throw new RuntimeException("Mismatched types");
-                ast.setType(leftType);
+                annotations.setType(ast, leftType);
                 return null;
             case "^":
                 if (leftType.equals(rightType) && leftType.equals(Environment.Type.INTEGER)) {
-                    ast.setType(Environment.Type.INTEGER);
+                    annotations.setType(ast, Environment.Type.INTEGER);
                     return null;
                 }
                 throw new RuntimeException("Mismatched types");
@@ -330,31 +449,18 @@ public final class Analyzer implements Ast.Visitor<Void> {
         if(ast.getOffset().isPresent()) {
             Ast.Expression offset = ast.getOffset().get();
             visit(offset);
-            if (!offset.getType().equals(Environment.Type.INTEGER))
+            if (!annotations.getType(offset).equals(Environment.Type.INTEGER))
                 throw new RuntimeException("Not INT");
 
         }
 
-        ast.setVariable(scope.lookupVariable(ast.getName()));
+        annotations.setVariable(ast, scope.lookupVariable(ast.getName()));
         return null;
     }
 
     @Override
     public Void visit(Ast.Expression.Function ast) {
-        String name = ast.getName();
-        List <Ast.Expression> arguments = ast.getArguments();
-        //scope.lookupVariable(name, arguments.size());
-        ast.setFunction(scope.lookupFunction(name, arguments.size()));
-        for(int i =0; i < arguments.size(); i++){
-            visit(arguments.get(i));
-            // List<Environment.Type> parametersType = ast.getFunction().getParameterTypes();
-            requireAssignable(ast.getFunction().getParameterTypes().get(i), arguments.get(i).getType());
-        }
-        return null;
-        //scope.defineFunction(name, name, args, )
-
-
-        //throw new UnsupportedOperationException();  // TODO
+        return expressions.walk(ast);
     }
 
     @Override
@@ -366,7 +472,7 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
         for (Ast.Expression expression : valueList) {
             visit(expression);
-            requireAssignable(ast.getType(), expression.getType());
+            requireAssignable(annotations.getType(ast), annotations.getType(expression));
         }
 
         return null;
@@ -0,0 +1,166 @@
+package plc.project;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Holds what the {@link Analyzer} works out about the nodes of a source: the
+ * type of a literal, group, binary expression or list, the variable of a
+ * global, declaration or access, and the function of a function or call.
+ *
+ * {@link #IN_NODES} keeps these on the nodes themselves through their
+ * setters, which is what the analyzer does by default. A table from {@link
+ * #table()} keeps them by node identity instead and never writes to a node,
+ * so one parsed source can be analyzed, and then generated, by several
+ * threads or configurations at once, each with a table of its own. A table is
+ * not safe to write from several threads, but once the analysis which filled
+ * it is done it may be read by any number of them.
+ */
+public abstract class Annotations {
+
+    /**
+     * Reads and writes the fields of the nodes.
+     */
+    public static final Annotations IN_NODES = new InNodes();
+
+    private Annotations() {}
+
+    /**
+     * Returns a new, empty table keyed by node identity.
+     */
+    public static Annotations table() {
+        return new Table();
+    }
+
+    /**
+     * Returns the type of the expression, which for an access is the type of
+     * its variable and for a call the return type of its function.
+     */
+    public abstract Environment.Type getType(Ast.Expression ast);
+
+    /**
+     * Sets the type of a literal, group, binary expression or list.
+     */
+    public abstract void setType(Ast.Expression ast, Environment.Type type);
+
+    /**
+     * Returns the variable of a global, declaration or access.
+     */
+    public abstract Environment.Variable getVariable(Ast ast);
+
+    public abstract void setVariable(Ast ast, Environment.Variable variable);
+
+    /**
+     * Returns the function of a function or call.
+     */
+    public abstract Environment.Function getFunction(Ast ast);
+
+    public abstract void setFunction(Ast ast, Environment.Function function);
+
+    private static final class InNodes extends Annotations {
+
+        @Override
+        public Environment.Type getType(Ast.Expression ast) {
+            return ast.getType();
+        }
+
+        @Override
+        public void setType(Ast.Expression ast, Environment.Type type) {
+            switch (ast.getKind()) {
+                case LITERAL: ((Ast.Expression.Literal) ast).setType(type); break;
+                case GROUP: ((Ast.Expression.Group) ast).setType(type); break;
+                case BINARY: ((Ast.Expression.Binary) ast).setType(type); break;
+                case LIST: ((Ast.Expression.PlcList) ast).setType(type); break;
+                default: throw new IllegalArgumentException("Cannot set the type of " + ast.getKind() + ".");
+            }
+        }
+
+        @Override
+        public Environment.Variable getVariable(Ast ast) {
+            switch (ast.getKind()) {
+                case GLOBAL: return ((Ast.Global) ast).getVariable();
+                case DECLARATION: return ((Ast.Statement.Declaration) ast).getVariable();
+                case ACCESS: return ((Ast.Expression.Access) ast).getVariable();
+                default: throw new IllegalArgumentException(ast.getKind() + " has no variable.");
+            }
+        }
+
+        @Override
+        public void setVariable(Ast ast, Environment.Variable variable) {
+            switch (ast.getKind()) {
+                case GLOBAL: ((Ast.Global) ast).setVariable(variable); break;
+                case DECLARATION: ((Ast.Statement.Declaration) ast).setVariable(variable); break;
+                case ACCESS: ((Ast.Expression.Access) ast).setVariable(variable); break;
+                default: throw new IllegalArgumentException(ast.getKind() + " has no variable.");
+            }
+        }
+
+        @Override
+        public Environment.Function getFunction(Ast ast) {
+            switch (ast.getKind()) {
+                case FUNCTION: return ((Ast.Function) ast).getFunction();
+                case CALL: return ((Ast.Expression.Function) ast).getFunction();
+                default: throw new IllegalArgumentException(ast.getKind() + " has no function.");
+            }
+        }
+
+        @Override
+        public void setFunction(Ast ast, Environment.Function function) {
+            switch (ast.getKind()) {
+                case FUNCTION: ((Ast.Function) ast).setFunction(function); break;
+                case CALL: ((Ast.Expression.Function) ast).setFunction(function); break;
+                default: throw new IllegalArgumentException(ast.getKind() + " has no function.");
+            }
+        }
+
+    }
+
+    private static final class Table extends Annotations {
+
+        private final Map<Ast, Object> annotations = new IdentityHashMap<>();
+
+        @Override
+        public Environment.Type getType(Ast.Expression ast) {
+            switch (ast.getKind()) {
+                case ACCESS: return getVariable(ast).getType();
+                case CALL: return getFunction(ast).getReturnType();
+                default: return (Environment.Type) get(ast, "type");
+            }
+        }
+
+        @Override
+        public void setType(Ast.Expression ast, Environment.Type type) {
+            annotations.put(ast, type);
+        }
+
+        @Override
+        public Environment.Variable getVariable(Ast ast) {
+            return (Environment.Variable) get(ast, "variable");
+        }
+
+        @Override
+        public void setVariable(Ast ast, Environment.Variable variable) {
+            annotations.put(ast, variable);
+        }
+
+        @Override
+        public Environment.Function getFunction(Ast ast) {
+            return (Environment.Function) get(ast, "function");
+        }
+
+        @Override
+        public void setFunction(Ast ast, Environment.Function function) {
+            annotations.put(ast, function);
+        }
+
+        private Object get(Ast ast, String name) {
+            Object annotation = annotations.get(ast);
+            if (annotation == null) {
+                throw new IllegalStateException(name + " is uninitialized");
+            }
+            return annotation;
+        }
+
+    }
+
+}
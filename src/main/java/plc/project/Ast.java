@@ -1,9 +1,12 @@
 package plc.project;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
  * See the Parser assignment specification for specific notes on each AST class
@@ -11,12 +14,89 @@ import java.util.Optional;
  */
 public abstract class Ast {
 
+    /**
+     * The class of a node, one per method of {@link Visitor}, so that {@link
+     * Visitor#visit(Ast)} dispatches with a single switch rather than testing
+     * the node against each class in turn.
+     */
+    public enum Kind {
+        SOURCE,
+        GLOBAL,
+        FUNCTION,
+        EXPRESSION,
+        DECLARATION,
+        ASSIGNMENT,
+        IF,
+        SWITCH,
+        CASE,
+        WHILE,
+        RETURN,
+        LITERAL,
+        GROUP,
+        BINARY,
+        ACCESS,
+        CALL,
+        LIST
+    }
+
+    private final Kind kind;
+    private final int hash;
+
+    /**
+     * Creates a node with the hash of its structure, which each class
+     * computes from the values given to its constructor. The analyzer's
+     * annotations are left out, as they are set later and an annotated node
+     * only ever equals a node of the same structure.
+     */
+    private Ast(Kind kind, int hash) {
+        this.kind = kind;
+        this.hash = 31 * kind.ordinal() + hash;
+    }
+
+    public final Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the hash of the structure computed when the node was created,
+     * so a node costs nothing to hash and {@code equals} rejects most
+     * unequal nodes by their hashes alone. As the hash is only computed once,
+     * the lists given to a node must not change after it is created.
+     *
+     * The hash of a function leaves out its body, which may not have been
+     * parsed yet, so hashing never loads a lazy body or throws for a broken
+     * one. Functions which differ only in their bodies are told apart by
+     * {@code equals}.
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Returns the text of the whole tree, as written by {@link AstPrinter}
+     * without limits.
+     */
+    @Override
+    public final String toString() {
+        return new AstPrinter().print(this);
+    }
+
+    /**
+     * Returns what the analyzer set on the node, or null if it has not been
+     * analyzed or the node has no annotation.
+     */
+    Object getAnnotation() {
+        return null;
+    }
+
     public static final class Source extends Ast {
 
         private final List<Global> globals;
         private final List<Ast.Function> functions;
 
         public Source(List<Global> globals, List<Ast.Function> functions) {
+            super(Kind.SOURCE, Objects.hash(globals, functions));
             this.globals = globals;
             this.functions = functions;
         }
@@ -32,18 +112,11 @@ public abstract class Ast {
         @Override
         public boolean equals(Object obj) {
             return obj instanceof Source &&
+                    hashCode() == obj.hashCode() &&
                     globals.equals(((Source) obj).globals) &&
                     functions.equals(((Source) obj).functions);
         }
 
-        @Override
-        public String toString() {
-            return "Ast.Source{" +
-                    "globals=" + globals +
-                    ", functions=" + functions +
-                    '}';
-        }
-
     }
 
     public static final class Global extends Ast {
@@ -59,6 +132,7 @@ public abstract class Ast {
 		}
 
         public Global(String name, String typeName, boolean mutable, Optional<Ast.Expression> value) {
+            super(Kind.GLOBAL, Objects.hash(name, typeName, mutable, value));
             this.name = name;
             this.typeName = typeName;
             this.mutable = mutable;
@@ -93,10 +167,16 @@ public abstract class Ast {
             this.variable = variable;
         }
 
+        @Override
+        Object getAnnotation() {
+            return variable;
+        }
+
 
         @Override
         public boolean equals(Object obj) {
             return obj instanceof Global &&
+                    hashCode() == obj.hashCode() &&
                     name.equals(((Global) obj).name) &&
                     typeName.equals(((Global) obj).typeName) &&
                     mutable == ((Global) obj).mutable &&
@@ -104,17 +184,6 @@ public abstract class Ast {
                     Objects.equals(variable, ((Global) obj).variable);
         }
 
-        @Override
-        public String toString() {
-            return "Ast.Global{" +
-                    "name='" + name + '\'' +
-                    ", typeName=" + typeName +
-                    ", mutable=" + mutable +
-                    ", value=" + value +
-                    ", variable=" + variable +
-                    '}';
-        }
-
     }
 
     public static final class Function extends Ast {
@@ -123,18 +192,16 @@ public abstract class Ast {
         private final List<String> parameters;
         private final List<String> parameterTypeNames;
         private final Optional<String> returnTypeName;
-        private final List<Statement> statements;
+        private List<Statement> statements;
+        private volatile Supplier<List<Statement>> body;
         private Environment.Function function = null;
         
         public Function(String name, List<String> parameters, List<Statement> statements) {
-            this(name, parameters, new ArrayList<>(), Optional.of("Any"), statements);
-            for (int i = 0; i < parameters.size(); i++) {
-                parameterTypeNames.add("Any");
-            }
+            this(name, parameters, new ArrayList<>(Collections.nCopies(parameters.size(), "Any")), Optional.of("Any"), statements);
         }
 
         public Function(String name, List<String> parameters, List<String> parameterTypeNames, Optional<String> returnTypeName, List<Statement> statements) {
-
+            super(Kind.FUNCTION, Objects.hash(name, parameters, parameterTypeNames, returnTypeName));
             this.name = name;
             this.parameters = parameters;
             this.parameterTypeNames = parameterTypeNames;
@@ -142,6 +209,17 @@ public abstract class Ast {
             this.statements = statements;
         }
 
+        /**
+         * Creates a function whose statements are only produced by the given
+         * supplier on the first call to {@link #getStatements()}, such as a
+         * body which has not been parsed yet. If the supplier throws, the
+         * exception propagates to that caller and the next call tries again.
+         */
+        public Function(String name, List<String> parameters, List<String> parameterTypeNames, Optional<String> returnTypeName, Supplier<List<Statement>> body) {
+            this(name, parameters, parameterTypeNames, returnTypeName, (List<Statement>) null);
+            this.body = body;
+        }
+
         public String getName() {
             return name;
         }
@@ -159,9 +237,25 @@ public abstract class Ast {
         }
 
         public List<Statement> getStatements() {
+            if (body != null) {
+                synchronized (this) {
+                    if (body != null) {
+                        statements = body.get();
+                        body = null;
+                    }
+                }
+            }
             return statements;
         }
 
+        /**
+         * Returns false if the statements are still waiting on the supplier
+         * given to the constructor.
+         */
+        public boolean isLoaded() {
+            return body == null;
+        }
+
         public Environment.Function getFunction() {
             if (function == null) {
                 throw new IllegalStateException("function is uninitialized");
@@ -173,40 +267,37 @@ public abstract class Ast {
             this.function = function;
         }
 
+        @Override
+        Object getAnnotation() {
+            return function;
+        }
 
         @Override
         public boolean equals(Object obj) {
             return obj instanceof Ast.Function &&
+                    hashCode() == obj.hashCode() &&
                     name.equals(((Ast.Function) obj).name) &&
                     parameters.equals(((Ast.Function) obj).parameters) &&
                     parameterTypeNames.equals(((Ast.Function) obj).parameterTypeNames) &&
                     returnTypeName.equals(((Ast.Function) obj).returnTypeName) &&
-                    statements.equals(((Ast.Function) obj).statements) &&
+                    getStatements().equals(((Ast.Function) obj).getStatements()) &&
                     Objects.equals(function, ((Ast.Function) obj).function);
         }
 
-
-        @Override
-        public String toString() {
-            return "Ast.Function{" +
-                    "name='" + name + '\'' +
-                    ", parameters=" + parameters +
-                    ", parameterTypeNames=" + parameterTypeNames +
-                    ", returnTypeName='" + returnTypeName + '\'' +
-                    ", statements=" + statements +
-                    ", function=" + function +
-                    '}';
-        }
-
     }
 
     public static abstract class Statement extends Ast {
 
+        private Statement(Kind kind, int hash) {
+            super(kind, hash);
+        }
+
         public static final class Expression extends Statement {
 
             private final Ast.Expression expression;
 
             public Expression(Ast.Expression expression) {
+                super(Kind.EXPRESSION, expression.hashCode());
                 this.expression = expression;
             }
 
@@ -217,16 +308,10 @@ public abstract class Ast {
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Ast.Statement.Expression &&
+                        hashCode() == obj.hashCode() &&
                         expression.equals(((Ast.Statement.Expression) obj).expression);
             }
 
-            @Override
-            public String toString() {
-                return "Ast.Statement.Expression{" +
-                        "expression=" + expression +
-                        '}';
-            }
-
         }
 
         public static final class Declaration extends Statement {
@@ -241,6 +326,7 @@ public abstract class Ast {
             }
 
             public Declaration(String name, Optional<String> typeName, Optional<Ast.Expression> value) {
+                super(Kind.DECLARATION, Objects.hash(name, typeName, value));
                 this.name = name;
                 this.typeName = typeName;
                 this.value = value;
@@ -268,27 +354,23 @@ public abstract class Ast {
             public void setVariable(Environment.Variable variable) {
                 this.variable = variable;
             }
+
+            @Override
+            Object getAnnotation() {
+                return variable;
+            }
             
             
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Declaration &&
+                        hashCode() == obj.hashCode() &&
                         name.equals(((Declaration) obj).name) &&
                         typeName.equals(((Declaration) obj).typeName) &&
                         value.equals(((Declaration) obj).value) &&
                         Objects.equals(variable, ((Declaration) obj).variable);
             }
 
-            @Override
-            public String toString() {
-                return "Ast.Statement.Declaration{" +
-                        "name='" + name + '\'' +
-                        ", typeName=" + typeName +
-                        ", value=" + value +
-                        ", variable=" + variable +
-                        '}';
-            }
-
         }
 
         public static final class Assignment extends Statement {
@@ -297,6 +379,7 @@ public abstract class Ast {
             private final Ast.Expression value;
 
             public Assignment(Ast.Expression receiver, Ast.Expression value) {
+                super(Kind.ASSIGNMENT, Objects.hash(receiver, value));
                 this.receiver = receiver;
                 this.value = value;
             }
@@ -312,18 +395,11 @@ public abstract class Ast {
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Assignment &&
+                        hashCode() == obj.hashCode() &&
                         receiver.equals(((Assignment) obj).receiver) &&
                         value.equals(((Assignment) obj).value);
             }
 
-            @Override
-            public final String toString() {
-                return "Ast.Statement.Assignment{" +
-                        "receiver=" + receiver +
-                        ", value=" + value +
-                        '}';
-            }
-
         }
 
         public static final class If extends Statement {
@@ -334,6 +410,7 @@ public abstract class Ast {
 
 
             public If(Ast.Expression condition, List<Statement> thenStatements, List<Statement> elseStatements) {
+                super(Kind.IF, Objects.hash(condition, thenStatements, elseStatements));
                 this.condition = condition;
                 this.thenStatements = thenStatements;
                 this.elseStatements = elseStatements;
@@ -354,20 +431,12 @@ public abstract class Ast {
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof If &&
+                        hashCode() == obj.hashCode() &&
                         condition.equals(((If) obj).condition) &&
                         thenStatements.equals(((If) obj).thenStatements) &&
                         elseStatements.equals(((If) obj).elseStatements);
             }
 
-            @Override
-            public String toString() {
-                return "Ast.Statement.If{" +
-                        "condition=" + condition +
-                        ", thenStatements=" + thenStatements +
-                        ", elseStatements=" + elseStatements +
-                        '}';
-            }
-
         }
 
         public static final class Switch extends Statement {
@@ -376,6 +445,7 @@ public abstract class Ast {
             private final List<Ast.Statement.Case> cases;
 
             public Switch(Ast.Expression condition, List<Ast.Statement.Case> cases) {
+                super(Kind.SWITCH, Objects.hash(condition, cases));
                 this.condition = condition;
                 this.cases = cases;
             }
@@ -389,18 +459,11 @@ public abstract class Ast {
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Switch &&
+                        hashCode() == obj.hashCode() &&
                         condition.equals(((Switch) obj).condition) &&
                         cases.equals(((Switch) obj).cases);
             }
 
-            @Override
-            public String toString() {
-                return "Ast.Statement.Switch{" +
-                        "condition=" + condition +
-                        ", cases=" + cases +
-                        '}';
-            }
-
         }
 
         public static final class Case extends Statement {
@@ -409,6 +472,7 @@ public abstract class Ast {
             private final List<Statement> statements;
 
             public Case(Optional<Ast.Expression> value, List<Statement> statements) {
+                super(Kind.CASE, Objects.hash(value, statements));
                 this.value = value;
                 this.statements = statements;
             }
@@ -424,18 +488,11 @@ public abstract class Ast {
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Case &&
+                        hashCode() == obj.hashCode() &&
                         value.equals(((Case) obj).value) &&
                         statements.equals(((Case) obj).statements);
             }
 
-            @Override
-            public String toString() {
-                return "Ast.Statement.Case{" +
-                        "value=" + value +
-                        ", statements=" + statements +
-                        '}';
-            }
-
         }
 
         public static final class While extends Statement {
@@ -444,6 +501,7 @@ public abstract class Ast {
             private final List<Statement> statements;
 
             public While(Ast.Expression condition, List<Statement> statements) {
+                super(Kind.WHILE, Objects.hash(condition, statements));
                 this.condition = condition;
                 this.statements = statements;
             }
@@ -459,18 +517,11 @@ public abstract class Ast {
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof While &&
+                        hashCode() == obj.hashCode() &&
                         condition.equals(((While) obj).condition) &&
                         statements.equals(((While) obj).statements);
             }
 
-            @Override
-            public String toString() {
-                return "Ast.Statement.While{" +
-                        "condition=" + condition +
-                        ", statements=" + statements +
-                        '}';
-            }
-
         }
 
         public static final class Return extends Statement {
@@ -478,6 +529,7 @@ public abstract class Ast {
             private final Ast.Expression value;
 
             public Return(Ast.Expression value) {
+                super(Kind.RETURN, value.hashCode());
                 this.value = value;
             }
 
@@ -488,30 +540,133 @@ public abstract class Ast {
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Return &&
+                        hashCode() == obj.hashCode() &&
                         value.equals(((Return) obj).value);
             }
 
-            @Override
-            public String toString() {
-                return "Ast.Statement.Return{" +
-                        "value=" + value +
-                        '}';
-            }
-
         }
 
     }
 
     public static abstract class Expression extends Ast {
 
+        private Expression(Kind kind, int hash) {
+            super(kind, hash);
+        }
+
         public abstract Environment.Type getType();
 
+        /**
+         * Returns whether two expressions of the same class and hash are
+         * equal. The operands of groups, binary expressions and calls are
+         * compared in a loop rather than by their own {@code equals}, so
+         * comparing two long chains of them does not recurse. The loop
+         * follows one operand of each pair and compares operands which are
+         * not themselves groups, binary expressions or calls right away, so
+         * a stack of the pairs left to compare is only allocated once a node
+         * has two such operands.
+         */
+        private static boolean equal(Ast.Expression first, Ast.Expression second) {
+            Ast.Expression[] stack = null;
+            int size = 0;
+            Ast.Expression left = first;
+            Ast.Expression right = second;
+            while (true) {
+                if (left != right) {
+                    if (left.getKind() != right.getKind() || left.hashCode() != right.hashCode() ||
+                            !Objects.equals(left.getAnnotation(), right.getAnnotation())) {
+                        return false;
+                    }
+                    switch (left.getKind()) {
+                        case GROUP:
+                            left = ((Group) left).expression;
+                            right = ((Group) right).expression;
+                            continue;
+                        case BINARY: {
+                            Binary binary = (Binary) left;
+                            Binary other = (Binary) right;
+                            if (!binary.operator.equals(other.operator)) {
+                                return false;
+                            } else if (!nested(binary.right)) {
+                                if (!binary.right.equals(other.right)) {
+                                    return false;
+                                }
+                            } else {
+                                stack = reserve(stack, size);
+                                stack[size++] = binary.right;
+                                stack[size++] = other.right;
+                            }
+                            left = binary.left;
+                            right = other.left;
+                            continue;
+                        }
+                        case CALL: {
+                            List<Ast.Expression> arguments = ((Ast.Expression.Function) left).arguments;
+                            List<Ast.Expression> others = ((Ast.Expression.Function) right).arguments;
+                            if (!((Ast.Expression.Function) left).name.equals(((Ast.Expression.Function) right).name) || arguments.size() != others.size()) {
+                                return false;
+                            }
+                            for (int i = arguments.size() - 1; i > 0; i--) {
+                                if (!nested(arguments.get(i))) {
+                                    if (!arguments.get(i).equals(others.get(i))) {
+                                        return false;
+                                    }
+                                } else {
+                                    stack = reserve(stack, size);
+                                    stack[size++] = arguments.get(i);
+                                    stack[size++] = others.get(i);
+                                }
+                            }
+                            if (!arguments.isEmpty()) {
+                                left = arguments.get(0);
+                                right = others.get(0);
+                                continue;
+                            }
+                            break;
+                        }
+                        default:
+                            if (!left.equals(right)) {
+                                return false;
+                            }
+                    }
+                }
+                if (size == 0) {
+                    return true;
+                }
+                right = stack[--size];
+                left = stack[--size];
+                stack[size] = null;
+                stack[size + 1] = null;
+            }
+        }
+
+        /**
+         * Returns whether the expression is compared by {@link
+         * #equal(Ast.Expression, Ast.Expression)} rather than its own {@code
+         * equals}.
+         */
+        private static boolean nested(Ast.Expression ast) {
+            Kind kind = ast.getKind();
+            return kind == Kind.GROUP || kind == Kind.BINARY || kind == Kind.CALL;
+        }
+
+        /**
+         * Returns the stack with room for one more pair.
+         */
+        private static Ast.Expression[] reserve(Ast.Expression[] stack, int size) {
+            if (stack == null) {
+                return new Ast.Expression[16];
+            }
+            return size + 2 > stack.length ? Arrays.copyOf(stack, stack.length * 2) : stack;
+        }
+
         public static final class Literal extends Ast.Expression {
 
             private final Object literal;
             private Environment.Type type = null;
             
             public Literal(Object literal) {
+                super(Kind.LITERAL, Objects.hashCode(literal));
                 this.literal = literal;
             }
 
@@ -531,23 +686,21 @@ public abstract class Ast {
                 this.type = type;
             }
 
+            @Override
+            Object getAnnotation() {
+                return type;
+            }
+
 
 
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Literal &&
+                        hashCode() == obj.hashCode() &&
                         Objects.equals(literal, ((Literal) obj).literal) &&
                         Objects.equals(type, ((Literal) obj).type);
             }
 
-            @Override
-            public String toString() {
-                return "Ast.Expression.Literal{" +
-                        "literal=" + literal +
-                        ", type=" + type +
-                        '}';
-            }
-
         }
 
         public static final class Group extends Ast.Expression {
@@ -556,6 +709,7 @@ public abstract class Ast {
             private Environment.Type type = null;
 
             public Group(Ast.Expression expression) {
+                super(Kind.GROUP, expression.hashCode());
                 this.expression = expression;
             }
 
@@ -575,21 +729,17 @@ public abstract class Ast {
                 this.type = type;
             }
 
-
             @Override
-            public boolean equals(Object obj) {
-                return obj instanceof Group &&
-                        expression.equals(((Group) obj).expression) &&
-                        Objects.equals(type, ((Group) obj).type);
+            Object getAnnotation() {
+                return type;
             }
 
 
             @Override
-            public String toString() {
-                return "Ast.Expression.Group{" +
-                        "expression=" + expression +
-                        ", type=" + type +
-                        '}';
+            public boolean equals(Object obj) {
+                return obj instanceof Group &&
+                        hashCode() == obj.hashCode() &&
+                        equal(this, (Group) obj);
             }
 
         }
@@ -602,6 +752,7 @@ public abstract class Ast {
             private Environment.Type type = null;
 
             public Binary(String operator, Ast.Expression left, Ast.Expression right) {
+                super(Kind.BINARY, Objects.hash(operator, left, right));
                 this.operator = operator;
                 this.left = left;
                 this.right = right;
@@ -632,22 +783,15 @@ public abstract class Ast {
             }
 
             @Override
-            public boolean equals(Object obj) {
-                return obj instanceof Binary &&
-                        operator.equals(((Binary) obj).operator) &&
-                        left.equals(((Binary) obj).left) &&
-                        right.equals(((Binary) obj).right) &&
-                        Objects.equals(type, ((Binary) obj).type);
+            Object getAnnotation() {
+                return type;
             }
 
             @Override
-            public String toString() {
-                return "Ast.Expression.Binary{" +
-                        "operator='" + operator + '\'' +
-                        ", left=" + left +
-                        ", right=" + right +
-                        ", type=" + type +
-                        '}';
+            public boolean equals(Object obj) {
+                return obj instanceof Binary &&
+                        hashCode() == obj.hashCode() &&
+                        equal(this, (Binary) obj);
             }
 
         }
@@ -660,6 +804,7 @@ public abstract class Ast {
             private Environment.Variable variable = null;
 
             public Access(Optional<Ast.Expression> offset, String name) {
+                super(Kind.ACCESS, Objects.hash(offset, name));
                 this.offset = offset;
                 this.name = name;
             }
@@ -683,6 +828,11 @@ public abstract class Ast {
                 this.variable = variable;
             }
 
+            @Override
+            Object getAnnotation() {
+                return variable;
+            }
+
             @Override
             public Environment.Type getType() {
                 return getVariable().getType();
@@ -691,21 +841,12 @@ public abstract class Ast {
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Access &&
+                        hashCode() == obj.hashCode() &&
                         offset.equals(((Access) obj).offset) &&
                         name.equals(((Access) obj).name) &&
                         Objects.equals(variable, ((Access) obj).variable);
             }
 
-
-            @Override
-            public String toString() {
-                return "Ast.Expression.Access{" +
-                        "offset=" + offset +
-                        ", name='" + name + '\'' +
-                        ", variable=" + variable +
-                        '}';
-            }
-
         }
 
         public static final class Function extends Ast.Expression {
@@ -715,6 +856,7 @@ public abstract class Ast {
             private Environment.Function function = null;
 
             public Function(String name, List<Ast.Expression> arguments) {
+                super(Kind.CALL, Objects.hash(name, arguments));
                 this.name = name;
                 this.arguments = arguments;
             }
@@ -738,6 +880,11 @@ public abstract class Ast {
                 this.function = function;
             }
 
+            @Override
+            Object getAnnotation() {
+                return function;
+            }
+
             @Override
             public Environment.Type getType() {
                 return getFunction().getReturnType();
@@ -746,18 +893,8 @@ public abstract class Ast {
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Ast.Expression.Function &&
-                        name.equals(((Ast.Expression.Function) obj).name) &&
-                        arguments.equals(((Ast.Expression.Function) obj).arguments) &&
-                        Objects.equals(function, ((Ast.Expression.Function) obj).function);
-            }
-
-            @Override
-            public String toString() {
-                return "Ast.Expression.Function{" +
-                        "name='" + name + '\'' +
-                        ", arguments=" + arguments +
-                        ", function=" + function +
-                        '}';
+                        hashCode() == obj.hashCode() &&
+                        equal(this, (Ast.Expression.Function) obj);
             }
 
         }
@@ -769,6 +906,7 @@ public abstract class Ast {
 
 
             public PlcList(List<Ast.Expression> values) {
+                super(Kind.LIST, values.hashCode());
                 this.values = values;
             }
 
@@ -788,21 +926,19 @@ public abstract class Ast {
                 this.type = type;
             }
 
+            @Override
+            Object getAnnotation() {
+                return type;
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Ast.Expression.PlcList &&
+                        hashCode() == obj.hashCode() &&
                         values.equals(((Ast.Expression.PlcList) obj).values) &&
                         Objects.equals(type, ((Ast.Expression.PlcList) obj).type);
             }
 
-            @Override
-            public String toString() {
-                return "Ast.Expression.PlcList{" +
-                        "values=[" + values + "]" +
-                        ", type=" + type +
-                        '}';
-            }
-
         }
 
     }
@@ -810,42 +946,43 @@ public abstract class Ast {
     public interface Visitor<T> {
 
         default T visit(Ast ast) {
-            if (ast instanceof Ast.Source) {
-                return visit((Ast.Source) ast);
-            } else if (ast instanceof Ast.Global) {
-                return visit((Ast.Global) ast);
-            } else if (ast instanceof Ast.Function) {
-                return visit((Ast.Function) ast);
-            } else if (ast instanceof Ast.Statement.Expression) {
-                return visit((Ast.Statement.Expression) ast);
-            } else if (ast instanceof Ast.Statement.Declaration) {
-                return visit((Ast.Statement.Declaration) ast);
-            } else if (ast instanceof Ast.Statement.Assignment) {
-                return visit((Ast.Statement.Assignment) ast);
-            } else if (ast instanceof Ast.Statement.If) {
-                return visit((Ast.Statement.If) ast);
-            } else if (ast instanceof Ast.Statement.Switch) {
-                return visit((Ast.Statement.Switch) ast);
-            } else if (ast instanceof Ast.Statement.Case) {
-                return visit((Ast.Statement.Case) ast);
-            } else if (ast instanceof Ast.Statement.While) {
-                return visit((Ast.Statement.While) ast);
-            } else if (ast instanceof Ast.Statement.Return) {
-                return visit((Ast.Statement.Return) ast);
-            } else if (ast instanceof Ast.Expression.Literal) {
-                return visit((Ast.Expression.Literal) ast);
-            } else if (ast instanceof Ast.Expression.Group) {
-                return visit((Ast.Expression.Group) ast);
-            } else if (ast instanceof Ast.Expression.Binary) {
-                return visit((Ast.Expression.Binary) ast);
-            } else if (ast instanceof Ast.Expression.Access) {
-                return visit((Ast.Expression.Access) ast);
-            } else if (ast instanceof Ast.Expression.Function) {
-                return visit((Ast.Expression.Function) ast);
-            } else if (ast instanceof Ast.Expression.PlcList) {
-                return visit((Ast.Expression.PlcList) ast);
-            } else {
-                throw new AssertionError("Unimplemented AST type: " + ast.getClass().getName() + ".");
+            switch (ast.getKind()) {
+                case SOURCE:
+                    return visit((Ast.Source) ast);
+                case GLOBAL:
+                    return visit((Ast.Global) ast);
+                case FUNCTION:
+                    return visit((Ast.Function) ast);
+                case EXPRESSION:
+                    return visit((Ast.Statement.Expression) ast);
+                case DECLARATION:
+                    return visit((Ast.Statement.Declaration) ast);
+                case ASSIGNMENT:
+                    return visit((Ast.Statement.Assignment) ast);
+                case IF:
+                    return visit((Ast.Statement.If) ast);
+                case SWITCH:
+                    return visit((Ast.Statement.Switch) ast);
+                case CASE:
+                    return visit((Ast.Statement.Case) ast);
+                case WHILE:
+                    return visit((Ast.Statement.While) ast);
+                case RETURN:
+                    return visit((Ast.Statement.Return) ast);
+                case LITERAL:
+                    return visit((Ast.Expression.Literal) ast);
+                case GROUP:
+                    return visit((Ast.Expression.Group) ast);
+                case BINARY:
+                    return visit((Ast.Expression.Binary) ast);
+                case ACCESS:
+                    return visit((Ast.Expression.Access) ast);
+                case CALL:
+                    return visit((Ast.Expression.Function) ast);
+                case LIST:
+                    return visit((Ast.Expression.PlcList) ast);
+                default:
+                    throw new AssertionError("Unimplemented AST type: " + ast.getClass().getName() + ".");
             }
         }
 
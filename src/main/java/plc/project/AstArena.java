@@ -0,0 +1,667 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A compact encoding of an {@link Ast}, in which nodes are ints indexing a few
+ * parallel arrays instead of separate objects. Each node has a {@link Kind}, a
+ * value and a type name from a pool of constants (names, literals and
+ * operators, each stored once), and an ordered list of children. An absent
+ * optional child is stored as {@code -1}, so the children of a kind are always
+ * in the same places:
+ *
+ * <ul>
+ *     <li>{@code SOURCE}: every {@code GLOBAL}, then every {@code FUNCTION}.</li>
+ *     <li>{@code GLOBAL} (name, type name, {@link #isMutable}): the value.</li>
+ *     <li>{@code FUNCTION} (name, return type name): each {@code PARAMETER}
+ *     (name, type name), then the {@code BLOCK} of statements.</li>
+ *     <li>{@code EXPRESSION}: the expression.</li>
+ *     <li>{@code DECLARATION} (name, type name): the value.</li>
+ *     <li>{@code ASSIGNMENT}: the receiver and the value.</li>
+ *     <li>{@code IF}: the condition, then the then and else {@code BLOCK}s.</li>
+ *     <li>{@code SWITCH}: the condition, then each {@code CASE}.</li>
+ *     <li>{@code CASE}: the value, then the {@code BLOCK}.</li>
+ *     <li>{@code WHILE}: the condition, then the {@code BLOCK}.</li>
+ *     <li>{@code RETURN}: the value.</li>
+ *     <li>{@code LITERAL} (literal): none.</li>
+ *     <li>{@code GROUP}: the expression.</li>
+ *     <li>{@code BINARY} (operator): the left and right operands.</li>
+ *     <li>{@code ACCESS} (name): the offset.</li>
+ *     <li>{@code CALL} (name): each argument.</li>
+ *     <li>{@code LIST}: each value.</li>
+ * </ul>
+ *
+ * Nodes are numbered in pre-order and the children of each node are stored
+ * together, so a node costs one byte and two ints plus an int per child (and
+ * one for the type name of the kinds which have one), rather than an object
+ * header, fields, {@link Optional}s and an {@link ArrayList} per node. By
+ * default only the syntax is encoded; the variables, functions and types set
+ * by the {@link Analyzer} are not.
+ *
+ * The existing visitors run over the arena through {@link #decode()}, which
+ * only decodes the body of each function when its statements are first used.
+ *
+ * An arena can also keep what the {@link Analyzer} set, see {@link
+ * #encode(Ast.Source, boolean)}, and be saved and loaded with {@link AstFile}.
+ */
+public final class AstArena {
+
+    public enum Kind {
+        SOURCE,
+        GLOBAL,
+        FUNCTION,
+        PARAMETER,
+        BLOCK,
+        EXPRESSION,
+        DECLARATION,
+        ASSIGNMENT,
+        IF,
+        SWITCH,
+        CASE,
+        WHILE,
+        RETURN,
+        LITERAL,
+        GROUP,
+        BINARY,
+        ACCESS,
+        CALL,
+        LIST
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+    private static final int KIND = 0x7F;
+    private static final int MUTABLE = 0x80;
+
+    /**
+     * The number of slots before the children of each kind, which hold the
+     * type name of those kinds that have one.
+     */
+    private static final int[] SLOTS = new int[KINDS.length];
+
+    static {
+        for (Kind kind : new Kind[] {Kind.GLOBAL, Kind.FUNCTION, Kind.PARAMETER, Kind.DECLARATION}) {
+            SLOTS[kind.ordinal()] = 1;
+        }
+    }
+
+    // The arrays are read and written directly by AstFile.
+    byte[] kinds = new byte[64];
+    int[] values = new int[64];
+    /**
+     * The index in {@link #children} of each node's slots and children,
+     * followed by one more entry for the end of the last node's children.
+     */
+    int[] firsts = new int[65];
+    int[] children = new int[64];
+    Object[] constants;
+    /**
+     * The index in {@link #annotations} of the variable, function or type
+     * of each node, or -1. Both are null if the arena was not annotated.
+     */
+    int[] annotated;
+    Object[] annotations;
+    int size;
+    int edges;
+
+    AstArena() {}
+
+    /**
+     * Encodes the source, whose root is then node 0.
+     */
+    public static AstArena encode(Ast.Source source) {
+        return encode(source, false);
+    }
+
+    /**
+     * Encodes the source, optionally with the {@link Environment.Variable},
+     * {@link Environment.Function} and {@link Environment.Type} which the
+     * {@link Analyzer} set on each node. These are then set again on the
+     * decoded nodes, with each variable and function shared between its
+     * nodes as it was in the source.
+     */
+    public static AstArena encode(Ast.Source source, boolean annotations) {
+        AstArena arena = new AstArena();
+        if (annotations) {
+            arena.annotated = new int[64];
+        }
+        Encoder encoder = arena.new Encoder();
+        encoder.encode(source);
+        arena.firsts[arena.size] = arena.edges;
+        arena.kinds = Arrays.copyOf(arena.kinds, arena.size);
+        arena.values = Arrays.copyOf(arena.values, arena.size);
+        arena.firsts = Arrays.copyOf(arena.firsts, arena.size + 1);
+        arena.children = Arrays.copyOf(arena.children, arena.edges);
+        arena.constants = encoder.constants.toArray();
+        if (annotations) {
+            arena.annotated = Arrays.copyOf(arena.annotated, arena.size);
+            arena.annotations = encoder.annotations.toArray();
+        }
+        return arena;
+    }
+
+    public int getRoot() {
+        return 0;
+    }
+
+    /**
+     * Returns the number of nodes.
+     */
+    public int size() {
+        return size;
+    }
+
+    public Kind getKind(int node) {
+        return KINDS[kinds[node] & KIND];
+    }
+
+    public boolean isMutable(int node) {
+        return (kinds[node] & MUTABLE) != 0;
+    }
+
+    /**
+     * Returns the name, operator or literal of the node, see the class
+     * comment. A {@code NIL} literal is {@code null}.
+     */
+    public Object getValue(int node) {
+        return values[node] < 0 ? null : constants[values[node]];
+    }
+
+    public String getName(int node) {
+        return (String) getValue(node);
+    }
+
+    /**
+     * Returns the type name or return type name of the node, or {@code null}
+     * if it has none.
+     */
+    public String getTypeName(int node) {
+        if (SLOTS[kinds[node] & KIND] == 0) {
+            return null;
+        }
+        int type = children[firsts[node]];
+        return type < 0 ? null : (String) constants[type];
+    }
+
+    /**
+     * Returns the variable, function or type which the analyzer set on the
+     * node, or {@code null} if there is none or it was not encoded.
+     */
+    public Object getAnnotation(int node) {
+        return annotated == null || annotated[node] < 0 ? null : annotations[annotated[node]];
+    }
+
+    public int getChildCount(int node) {
+        return firsts[node + 1] - firsts[node] - SLOTS[kinds[node] & KIND];
+    }
+
+    /**
+     * Returns the child at the given index, or {@code -1} if that optional
+     * child is absent.
+     */
+    public int getChild(int node, int index) {
+        if (index < 0 || index >= getChildCount(node)) {
+            throw new IndexOutOfBoundsException("Child " + index + " out of bounds for " + getChildCount(node) + " children.");
+        }
+        return children[firsts[node] + SLOTS[kinds[node] & KIND] + index];
+    }
+
+    /**
+     * Decodes the whole source. The statements of each function are only
+     * decoded by the first call to {@link Ast.Function#getStatements()}.
+     */
+    public Ast.Source decode() {
+        return (Ast.Source) decode(getRoot());
+    }
+
+    /**
+     * Decodes the subtree of the given node, which is a new {@link Ast}
+     * equal to the one that was encoded (apart from what the analyzer sets).
+     */
+    public Ast decode(int node) {
+        return (Ast) build(node);
+    }
+
+    /**
+     * Decodes the subtree of the node bottom up, with an explicit stack of
+     * the nodes being decoded and another of the results of their children,
+     * so that a deeply nested expression does not overflow the Java stack.
+     * A {@code BLOCK} decodes to the list of its statements, and an absent
+     * child to {@code null}. The body of a function is left to its supplier.
+     */
+    private Object build(int root) {
+        int[] nodes = new int[16];
+        boolean[] entered = new boolean[16];
+        int top = 0;
+        Object[] results = new Object[16];
+        int count = 0;
+        nodes[top++] = root;
+        while (top > 0) {
+            int node = nodes[top - 1];
+            int children = node < 0 || getKind(node) == Kind.FUNCTION ? 0 : getChildCount(node);
+            if (!entered[top - 1]) {
+                entered[top - 1] = true;
+                if (top + children > nodes.length) {
+                    nodes = Arrays.copyOf(nodes, Math.max(top + children, nodes.length * 2));
+                    entered = Arrays.copyOf(entered, nodes.length);
+                }
+                for (int i = children - 1; i >= 0; i--) {
+                    nodes[top] = getChild(node, i);
+                    entered[top++] = false;
+                }
+                continue;
+            }
+            top--;
+            count -= children;
+            Object result;
+            if (node < 0) {
+                result = null;
+            } else if (getKind(node) == Kind.BLOCK) {
+                List<Ast.Statement> statements = new ArrayList<>(children);
+                for (int i = 0; i < children; i++) {
+                    statements.add((Ast.Statement) results[count + i]);
+                }
+                result = statements;
+            } else {
+                result = annotate(node, create(node, results, count));
+            }
+            Arrays.fill(results, count, count + children, null);
+            if (count == results.length) {
+                results = Arrays.copyOf(results, count * 2);
+            }
+            results[count++] = result;
+        }
+        return results[0];
+    }
+
+    /**
+     * Sets what the analyzer set on the encoded node, if anything, on the
+     * decoded node.
+     */
+    private Ast annotate(int node, Ast ast) {
+        Object annotation = getAnnotation(node);
+        if (annotation instanceof Environment.Variable) {
+            Environment.Variable variable = (Environment.Variable) annotation;
+            if (ast instanceof Ast.Global) {
+                ((Ast.Global) ast).setVariable(variable);
+            } else if (ast instanceof Ast.Statement.Declaration) {
+                ((Ast.Statement.Declaration) ast).setVariable(variable);
+            } else {
+                ((Ast.Expression.Access) ast).setVariable(variable);
+            }
+        } else if (annotation instanceof Environment.Function) {
+            Environment.Function function = (Environment.Function) annotation;
+            if (ast instanceof Ast.Function) {
+                ((Ast.Function) ast).setFunction(function);
+            } else {
+                ((Ast.Expression.Function) ast).setFunction(function);
+            }
+        } else if (annotation instanceof Environment.Type) {
+            Environment.Type type = (Environment.Type) annotation;
+            if (ast instanceof Ast.Expression.Literal) {
+                ((Ast.Expression.Literal) ast).setType(type);
+            } else if (ast instanceof Ast.Expression.Group) {
+                ((Ast.Expression.Group) ast).setType(type);
+            } else if (ast instanceof Ast.Expression.Binary) {
+                ((Ast.Expression.Binary) ast).setType(type);
+            } else {
+                ((Ast.Expression.PlcList) ast).setType(type);
+            }
+        }
+        return ast;
+    }
+
+    /**
+     * Creates the node from the decoded results of its children, which start
+     * at the given index.
+     */
+    @SuppressWarnings("unchecked")
+    private Ast create(int node, Object[] results, int first) {
+        switch (getKind(node)) {
+            case SOURCE:
+                List<Ast.Global> globals = new ArrayList<>();
+                List<Ast.Function> functions = new ArrayList<>();
+                for (int i = 0; i < getChildCount(node); i++) {
+                    Object child = results[first + i];
+                    if (child instanceof Ast.Global) {
+                        globals.add((Ast.Global) child);
+                    } else {
+                        functions.add((Ast.Function) child);
+                    }
+                }
+                return new Ast.Source(globals, functions);
+            case GLOBAL:
+                return new Ast.Global(getName(node), getTypeName(node), isMutable(node), optional(results[first]));
+            case FUNCTION:
+                int count = getChildCount(node) - 1;
+                List<String> parameters = new ArrayList<>(count);
+                List<String> parameterTypeNames = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    int parameter = getChild(node, i);
+                    parameters.add(getName(parameter));
+                    if (getTypeName(parameter) != null) {
+                        parameterTypeNames.add(getTypeName(parameter));
+                    }
+                }
+                int block = getChild(node, count);
+                return new Ast.Function(getName(node), parameters, parameterTypeNames,
+                        Optional.ofNullable(getTypeName(node)), () -> (List<Ast.Statement>) build(block));
+            case EXPRESSION:
+                return new Ast.Statement.Expression((Ast.Expression) results[first]);
+            case DECLARATION:
+                return new Ast.Statement.Declaration(getName(node), Optional.ofNullable(getTypeName(node)), optional(results[first]));
+            case ASSIGNMENT:
+                return new Ast.Statement.Assignment((Ast.Expression) results[first], (Ast.Expression) results[first + 1]);
+            case IF:
+                return new Ast.Statement.If((Ast.Expression) results[first],
+                        (List<Ast.Statement>) results[first + 1], (List<Ast.Statement>) results[first + 2]);
+            case SWITCH:
+                List<Ast.Statement.Case> cases = new ArrayList<>();
+                for (int i = 1; i < getChildCount(node); i++) {
+                    cases.add((Ast.Statement.Case) results[first + i]);
+                }
+                return new Ast.Statement.Switch((Ast.Expression) results[first], cases);
+            case CASE:
+                return new Ast.Statement.Case(optional(results[first]), (List<Ast.Statement>) results[first + 1]);
+            case WHILE:
+                return new Ast.Statement.While((Ast.Expression) results[first], (List<Ast.Statement>) results[first + 1]);
+            case RETURN:
+                return new Ast.Statement.Return((Ast.Expression) results[first]);
+            case LITERAL:
+                return new Ast.Expression.Literal(getValue(node));
+            case GROUP:
+                return new Ast.Expression.Group((Ast.Expression) results[first]);
+            case BINARY:
+                return new Ast.Expression.Binary(getName(node), (Ast.Expression) results[first], (Ast.Expression) results[first + 1]);
+            case ACCESS:
+                return new Ast.Expression.Access(optional(results[first]), getName(node));
+            case CALL:
+                return new Ast.Expression.Function(getName(node), expressions(node, results, first));
+            case LIST:
+                return new Ast.Expression.PlcList(expressions(node, results, first));
+            default:
+                throw new IllegalArgumentException("Node " + node + " of kind " + getKind(node) + " is not an Ast.");
+        }
+    }
+
+    private static Optional<Ast.Expression> optional(Object result) {
+        return Optional.ofNullable((Ast.Expression) result);
+    }
+
+    private List<Ast.Expression> expressions(int node, Object[] results, int first) {
+        List<Ast.Expression> expressions = new ArrayList<>(getChildCount(node));
+        for (int i = 0; i < getChildCount(node); i++) {
+            expressions.add((Ast.Expression) results[first + i]);
+        }
+        return expressions;
+    }
+
+    /**
+     * Appends the nodes of an {@link Ast} in pre-order. Each node is added
+     * and its children reserved before they are encoded, which keeps the
+     * children of a node together. The subtrees still to encode are kept on
+     * an explicit stack along with the slot each fills in its parent, so a
+     * deeply nested expression does not overflow the Java stack. A list of
+     * statements on the stack is encoded as a {@code BLOCK}.
+     */
+    private final class Encoder {
+
+        private final Map<Object, Integer> pool = new HashMap<>();
+        private final List<Object> constants = new ArrayList<>();
+        private final Map<Object, Integer> resolved = new IdentityHashMap<>();
+        private final List<Object> annotations = new ArrayList<>();
+
+        private Object[] items = new Object[16];
+        private int[] parents = new int[16];
+        private int[] indices = new int[16];
+        private int top;
+
+        private int constant(Object value) {
+            Integer index = pool.get(value);
+            if (index == null) {
+                index = constants.size();
+                pool.put(value, index);
+                constants.add(value);
+            }
+            return index;
+        }
+
+        private int add(Kind kind, Object value, String type, int children) {
+            if (size + 1 == firsts.length) {
+                int capacity = kinds.length * 2;
+                kinds = Arrays.copyOf(kinds, capacity);
+                values = Arrays.copyOf(values, capacity);
+                if (annotated != null) {
+                    annotated = Arrays.copyOf(annotated, capacity);
+                }
+                firsts = Arrays.copyOf(firsts, capacity + 1);
+            }
+            int slots = SLOTS[kind.ordinal()] + children;
+            if (edges + slots > AstArena.this.children.length) {
+                AstArena.this.children = Arrays.copyOf(AstArena.this.children, Math.max(edges + slots, AstArena.this.children.length * 2));
+            }
+            int node = size++;
+            kinds[node] = (byte) kind.ordinal();
+            values[node] = kind == Kind.LITERAL || value != null ? constant(value) : -1;
+            firsts[node] = edges;
+            if (annotated != null) {
+                annotated[node] = -1;
+            }
+            if (SLOTS[kind.ordinal()] != 0) {
+                AstArena.this.children[edges] = type == null ? -1 : constant(type);
+            }
+            edges += slots;
+            return node;
+        }
+
+        /**
+         * Records what the analyzer set on the node, if annotating.
+         */
+        private void annotate(int node, Ast ast) {
+            Object value = ast.getAnnotation();
+            if (annotated == null || value == null) {
+                return;
+            }
+            Integer index = resolved.get(value);
+            if (index == null) {
+                index = annotations.size();
+                resolved.put(value, index);
+                annotations.add(value);
+            }
+            annotated[node] = index;
+        }
+
+        private void set(int node, int index, int child) {
+            AstArena.this.children[firsts[node] + SLOTS[kinds[node] & KIND] + index] = child;
+        }
+
+        /**
+         * Encodes the tree and returns its root.
+         */
+        int encode(Ast root) {
+            int node = add(root);
+            while (top > 0) {
+                top--;
+                Object item = items[top];
+                items[top] = null;
+                int parent = parents[top];
+                int index = indices[top];
+                set(parent, index, item instanceof List ? block((List<?>) item) : add((Ast) item));
+            }
+            return node;
+        }
+
+        /**
+         * Adds the node, and pushes its children to be encoded into its
+         * slots.
+         */
+        private int add(Ast ast) {
+            int node;
+            switch (ast.getKind()) {
+                case SOURCE: {
+                    Ast.Source source = (Ast.Source) ast;
+                    List<Ast.Global> globals = source.getGlobals();
+                    List<Ast.Function> functions = source.getFunctions();
+                    node = add(Kind.SOURCE, null, null, globals.size() + functions.size());
+                    for (int i = functions.size() - 1; i >= 0; i--) {
+                        push(functions.get(i), node, globals.size() + i);
+                    }
+                    pushAll(globals, node, 0);
+                    break;
+                }
+                case GLOBAL: {
+                    Ast.Global global = (Ast.Global) ast;
+                    node = add(Kind.GLOBAL, global.getName(), global.getTypeName(), 1);
+                    if (global.getMutable()) {
+                        kinds[node] |= MUTABLE;
+                    }
+                    push(global.getValue(), node, 0);
+                    break;
+                }
+                case FUNCTION: {
+                    Ast.Function function = (Ast.Function) ast;
+                    List<String> parameters = function.getParameters();
+                    List<String> parameterTypeNames = function.getParameterTypeNames();
+                    node = add(Kind.FUNCTION, function.getName(), function.getReturnTypeName().orElse(null), parameters.size() + 1);
+                    for (int i = 0; i < parameters.size(); i++) {
+                        String type = i < parameterTypeNames.size() ? parameterTypeNames.get(i) : null;
+                        set(node, i, add(Kind.PARAMETER, parameters.get(i), type, 0));
+                    }
+                    push(function.getStatements(), node, parameters.size());
+                    break;
+                }
+                case EXPRESSION:
+                    node = add(Kind.EXPRESSION, null, null, 1);
+                    push(((Ast.Statement.Expression) ast).getExpression(), node, 0);
+                    break;
+                case DECLARATION: {
+                    Ast.Statement.Declaration declaration = (Ast.Statement.Declaration) ast;
+                    node = add(Kind.DECLARATION, declaration.getName(), declaration.getTypeName().orElse(null), 1);
+                    push(declaration.getValue(), node, 0);
+                    break;
+                }
+                case ASSIGNMENT: {
+                    Ast.Statement.Assignment assignment = (Ast.Statement.Assignment) ast;
+                    node = add(Kind.ASSIGNMENT, null, null, 2);
+                    push(assignment.getValue(), node, 1);
+                    push(assignment.getReceiver(), node, 0);
+                    break;
+                }
+                case IF: {
+                    Ast.Statement.If statement = (Ast.Statement.If) ast;
+                    node = add(Kind.IF, null, null, 3);
+                    push(statement.getElseStatements(), node, 2);
+                    push(statement.getThenStatements(), node, 1);
+                    push(statement.getCondition(), node, 0);
+                    break;
+                }
+                case SWITCH: {
+                    Ast.Statement.Switch statement = (Ast.Statement.Switch) ast;
+                    node = add(Kind.SWITCH, null, null, statement.getCases().size() + 1);
+                    pushAll(statement.getCases(), node, 1);
+                    push(statement.getCondition(), node, 0);
+                    break;
+                }
+                case CASE: {
+                    Ast.Statement.Case statement = (Ast.Statement.Case) ast;
+                    node = add(Kind.CASE, null, null, 2);
+                    push(statement.getStatements(), node, 1);
+                    push(statement.getValue(), node, 0);
+                    break;
+                }
+                case WHILE: {
+                    Ast.Statement.While statement = (Ast.Statement.While) ast;
+                    node = add(Kind.WHILE, null, null, 2);
+                    push(statement.getStatements(), node, 1);
+                    push(statement.getCondition(), node, 0);
+                    break;
+                }
+                case RETURN:
+                    node = add(Kind.RETURN, null, null, 1);
+                    push(((Ast.Statement.Return) ast).getValue(), node, 0);
+                    break;
+                case LITERAL:
+                    node = add(Kind.LITERAL, ((Ast.Expression.Literal) ast).getLiteral(), null, 0);
+                    break;
+                case GROUP:
+                    node = add(Kind.GROUP, null, null, 1);
+                    push(((Ast.Expression.Group) ast).getExpression(), node, 0);
+                    break;
+                case BINARY: {
+                    Ast.Expression.Binary binary = (Ast.Expression.Binary) ast;
+                    node = add(Kind.BINARY, binary.getOperator(), null, 2);
+                    push(binary.getRight(), node, 1);
+                    push(binary.getLeft(), node, 0);
+                    break;
+                }
+                case ACCESS: {
+                    Ast.Expression.Access access = (Ast.Expression.Access) ast;
+                    node = add(Kind.ACCESS, access.getName(), null, 1);
+                    push(access.getOffset(), node, 0);
+                    break;
+                }
+                case CALL: {
+                    Ast.Expression.Function function = (Ast.Expression.Function) ast;
+                    node = add(Kind.CALL, function.getName(), null, function.getArguments().size());
+                    pushAll(function.getArguments(), node, 0);
+                    break;
+                }
+                case LIST: {
+                    List<Ast.Expression> values = ((Ast.Expression.PlcList) ast).getValues();
+                    node = add(Kind.LIST, null, null, values.size());
+                    pushAll(values, node, 0);
+                    break;
+                }
+                default:
+                    throw new AssertionError("Unimplemented AST type: " + ast.getClass().getName() + ".");
+            }
+            annotate(node, ast);
+            return node;
+        }
+
+        private int block(List<?> statements) {
+            int node = add(Kind.BLOCK, null, null, statements.size());
+            pushAll(statements, node, 0);
+            return node;
+        }
+
+        /**
+         * Pushes the items in reverse, so they are encoded in order into
+         * consecutive slots from the given index.
+         */
+        private void pushAll(List<?> items, int parent, int index) {
+            for (int i = items.size() - 1; i >= 0; i--) {
+                push(items.get(i), parent, index + i);
+            }
+        }
+
+        /**
+         * Pushes an optional child, or marks its slot absent.
+         */
+        private void push(Optional<? extends Ast> item, int parent, int index) {
+            if (item.isPresent()) {
+                push(item.get(), parent, index);
+            } else {
+                set(parent, index, -1);
+            }
+        }
+
+        private void push(Object item, int parent, int index) {
+            if (top == items.length) {
+                items = Arrays.copyOf(items, top * 2);
+                parents = Arrays.copyOf(parents, top * 2);
+                indices = Arrays.copyOf(indices, top * 2);
+            }
+            items[top] = item;
+            parents[top] = parent;
+            indices[top++] = index;
+        }
+
+    }
+
+}
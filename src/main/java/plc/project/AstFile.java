@@ -0,0 +1,343 @@
+package plc.project;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saves an analyzed {@link Ast.Source} to a file and loads it back, so an
+ * unchanged program can skip the {@link Lexer}, {@link Parser} and {@link
+ * Analyzer} on the next start. The file holds the arrays of an {@link
+ * AstArena}, which are loaded with bulk copies out of a mapping of the file,
+ * so loading costs about as much as reading the bytes.
+ *
+ * The file starts with a magic number and {@link #VERSION}, and a file of
+ * any other version is rejected rather than misread. Then come the node
+ * arrays, then the constants and the annotations. Variables and functions
+ * are stored by their names and types, and types by name, each as the index
+ * of a constant so that every string is only decoded once. Types are resolved
+ * with {@link Environment#getType(String)} when the file is loaded. A loaded
+ * variable's value is {@link Environment#NIL} and a loaded function returns
+ * {@code NIL}, as in the analyzer.
+ */
+public final class AstFile {
+
+    private static final int MAGIC = 0x504C4341;
+
+    /**
+     * The version of the format, incremented by any change to it.
+     */
+    public static final int VERSION = 1;
+
+    private static final int ANNOTATED = 1;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte DECIMAL = 3;
+    private static final byte CHARACTER = 4;
+    private static final byte BOOLEAN = 5;
+
+    private static final byte VARIABLE = 1;
+    private static final byte FUNCTION = 2;
+    private static final byte TYPE = 3;
+
+    private AstFile() {}
+
+    /**
+     * Writes the source along with what the analyzer set on it.
+     */
+    public static void write(Ast.Source source, Path path) throws IOException {
+        write(AstArena.encode(source, true), path);
+    }
+
+    public static void write(AstArena arena, Path path) throws IOException {
+        // The constants of the arena, then the names of the annotations
+        List<Object> constants = new ArrayList<>(Arrays.asList(arena.constants));
+        Map<String, Integer> names = new HashMap<>();
+        for (int i = 0; i < constants.size(); i++) {
+            if (constants.get(i) instanceof String) {
+                names.putIfAbsent((String) constants.get(i), i);
+            }
+        }
+        List<int[]> annotations = new ArrayList<>();
+        if (arena.annotated != null) {
+            for (Object annotation : arena.annotations) {
+                annotations.add(encodeAnnotation(annotation, names, constants));
+            }
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(arena.annotated != null ? ANNOTATED : 0);
+            out.writeInt(arena.size);
+            out.writeInt(arena.edges);
+            out.writeInt(constants.size());
+            out.writeInt(annotations.size());
+            writeInts(out, arena.values, arena.size);
+            writeInts(out, arena.firsts, arena.size + 1);
+            writeInts(out, arena.children, arena.edges);
+            if (arena.annotated != null) {
+                writeInts(out, arena.annotated, arena.size);
+            }
+            out.write(arena.kinds, 0, arena.size);
+            for (Object constant : constants) {
+                writeConstant(out, constant);
+            }
+            for (int[] annotation : annotations) {
+                writeInts(out, annotation, annotation.length);
+            }
+        }
+    }
+
+    /**
+     * Loads the source from the file, see {@link AstArena#decode()}.
+     */
+    public static Ast.Source read(Path path) throws IOException {
+        return map(path).decode();
+    }
+
+    /**
+     * Loads the arena from the file by mapping it. A file which is truncated
+     * or whose counts do not fit in it is rejected with an {@link
+     * IOException}, as is one of another version, so a cache can fall back to
+     * parsing the program again.
+     */
+    public static AstArena map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 28 || buffer.getInt() != MAGIC) {
+                throw new IOException("Not an AST file: " + path + ".");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported AST file version " + version + ", expected " + VERSION + ".");
+            }
+            int flags = buffer.getInt();
+            AstArena arena = new AstArena();
+            arena.size = buffer.getInt();
+            arena.edges = buffer.getInt();
+            int constants = buffer.getInt();
+            int annotations = buffer.getInt();
+            // Every constant takes at least its tag and every annotation its
+            // tag and one index, so the counts bound the size of the file.
+            if (arena.size < 0 || arena.edges < 0 || constants < 0 || annotations < 0 ||
+                    9L * arena.size + 4 + 4L * arena.edges + ((flags & ANNOTATED) != 0 ? 4L * arena.size : 0) +
+                            constants + 8L * annotations > buffer.remaining()) {
+                throw new IOException("Corrupt AST file: " + path + ".");
+            }
+            try {
+                return read(buffer, arena, flags, constants, annotations);
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | ClassCastException e) {
+                throw new IOException("Corrupt AST file: " + path + ".", e);
+            }
+        }
+    }
+
+    /**
+     * Reads the arrays, constants and annotations which follow the header.
+     */
+    private static AstArena read(ByteBuffer buffer, AstArena arena, int flags, int constants, int annotations) throws IOException {
+        arena.values = readInts(buffer, arena.size);
+        arena.firsts = readInts(buffer, arena.size + 1);
+        arena.children = readInts(buffer, arena.edges);
+        if ((flags & ANNOTATED) != 0) {
+            arena.annotated = readInts(buffer, arena.size);
+        }
+        arena.kinds = new byte[arena.size];
+        buffer.get(arena.kinds);
+        arena.constants = new Object[constants];
+        for (int i = 0; i < constants; i++) {
+            arena.constants[i] = readConstant(buffer);
+        }
+        if ((flags & ANNOTATED) != 0) {
+            Environment.Type[] types = new Environment.Type[constants];
+            arena.annotations = new Object[annotations];
+            for (int i = 0; i < annotations; i++) {
+                arena.annotations[i] = readAnnotation(buffer, arena.constants, types);
+            }
+        }
+        return arena;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length * 4);
+        buffer.asIntBuffer().put(values, 0, length);
+        out.write(buffer.array());
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int length) {
+        int[] values = new int[length];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + length * 4);
+        return values;
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        out.writeInt(string.length());
+        out.writeChars(string);
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        char[] chars = new char[readLength(buffer, 2)];
+        buffer.asCharBuffer().get(chars);
+        buffer.position(buffer.position() + chars.length * 2);
+        return new String(chars);
+    }
+
+    private static void writeConstant(DataOutputStream out, Object constant) throws IOException {
+        if (constant == null) {
+            out.writeByte(NULL);
+        } else if (constant instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) constant);
+        } else if (constant instanceof BigInteger) {
+            out.writeByte(INTEGER);
+            byte[] bytes = ((BigInteger) constant).toByteArray();
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else if (constant instanceof BigDecimal) {
+            out.writeByte(DECIMAL);
+            out.writeInt(((BigDecimal) constant).scale());
+            byte[] bytes = ((BigDecimal) constant).unscaledValue().toByteArray();
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else if (constant instanceof Character) {
+            out.writeByte(CHARACTER);
+            out.writeChar((Character) constant);
+        } else if (constant instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) constant);
+        } else {
+            throw new IllegalArgumentException("Unsupported literal " + constant + " of type " + constant.getClass().getName() + ".");
+        }
+    }
+
+    private static Object readConstant(ByteBuffer buffer) throws IOException {
+        byte tag = buffer.get();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(buffer);
+            case INTEGER:
+                return new BigInteger(readBytes(buffer));
+            case DECIMAL:
+                int scale = buffer.getInt();
+                return new BigDecimal(new BigInteger(readBytes(buffer)), scale);
+            case CHARACTER:
+                return buffer.getChar();
+            case BOOLEAN:
+                return buffer.get() != 0;
+            default:
+                throw new IOException("Invalid constant tag " + tag + ".");
+        }
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) throws IOException {
+        byte[] bytes = new byte[readLength(buffer, 1)];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Reads the length of an array of elements of the given width, checking
+     * that it fits in the rest of the file before it is allocated.
+     */
+    private static int readLength(ByteBuffer buffer, int width) throws IOException {
+        int length = buffer.getInt();
+        if (length < 0 || (long) length * width > buffer.remaining()) {
+            throw new IOException("Invalid length " + length + ".");
+        }
+        return length;
+    }
+
+    /**
+     * Encodes the annotation as its tag followed by the indices of the
+     * constants of its names, adding any which are missing.
+     */
+    private static int[] encodeAnnotation(Object annotation, Map<String, Integer> names, List<Object> constants) {
+        if (annotation instanceof Environment.Variable) {
+            Environment.Variable variable = (Environment.Variable) annotation;
+            return new int[] {VARIABLE,
+                    name(variable.getName(), names, constants),
+                    name(variable.getJvmName(), names, constants),
+                    name(variable.getType().getName(), names, constants),
+                    variable.getMutable() ? 1 : 0};
+        } else if (annotation instanceof Environment.Function) {
+            Environment.Function function = (Environment.Function) annotation;
+            List<Environment.Type> parameterTypes = function.getParameterTypes();
+            int[] encoded = new int[5 + parameterTypes.size()];
+            encoded[0] = FUNCTION;
+            encoded[1] = name(function.getName(), names, constants);
+            encoded[2] = name(function.getJvmName(), names, constants);
+            encoded[3] = name(function.getReturnType().getName(), names, constants);
+            encoded[4] = parameterTypes.size();
+            for (int i = 0; i < parameterTypes.size(); i++) {
+                encoded[5 + i] = name(parameterTypes.get(i).getName(), names, constants);
+            }
+            return encoded;
+        } else {
+            return new int[] {TYPE, name(((Environment.Type) annotation).getName(), names, constants)};
+        }
+    }
+
+    private static int name(String name, Map<String, Integer> names, List<Object> constants) {
+        Integer index = names.get(name);
+        if (index == null) {
+            index = constants.size();
+            names.put(name, index);
+            constants.add(name);
+        }
+        return index;
+    }
+
+    private static Object readAnnotation(ByteBuffer buffer, Object[] constants, Environment.Type[] types) throws IOException {
+        int tag = buffer.getInt();
+        switch (tag) {
+            case VARIABLE:
+                String name = (String) constants[buffer.getInt()];
+                String jvmName = (String) constants[buffer.getInt()];
+                Environment.Type type = type(buffer.getInt(), constants, types);
+                return new Environment.Variable(name, jvmName, type, buffer.getInt() != 0, Environment.NIL);
+            case FUNCTION:
+                name = (String) constants[buffer.getInt()];
+                jvmName = (String) constants[buffer.getInt()];
+                Environment.Type returnType = type(buffer.getInt(), constants, types);
+                List<Environment.Type> parameterTypes = new ArrayList<>();
+                for (int i = buffer.getInt(); i > 0; i--) {
+                    parameterTypes.add(type(buffer.getInt(), constants, types));
+                }
+                return new Environment.Function(name, jvmName, parameterTypes, returnType, args -> Environment.NIL);
+            case TYPE:
+                return type(buffer.getInt(), constants, types);
+            default:
+                throw new IOException("Invalid annotation tag " + tag + ".");
+        }
+    }
+
+    /**
+     * Resolves the type named by the constant, once per constant.
+     */
+    private static Environment.Type type(int name, Object[] constants, Environment.Type[] types) {
+        if (types[name] == null) {
+            types[name] = Environment.getType((String) constants[name]);
+        }
+        return types[name];
+    }
+
+}
@@ -0,0 +1,398 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Shares structurally identical expressions of an {@link Ast.Source}, so
+ * that a literal or subexpression repeated throughout a (typically generated)
+ * source is only kept once. Expressions are interned bottom up, so each is
+ * looked up by its own values and the identities of its already interned
+ * children, and only statements and other nodes above a shared expression are
+ * copied; the rest of the tree is returned as is.
+ *
+ * Since the analyzer sets its results on the nodes themselves, a node is only
+ * shared with another if analysis would set the same thing on both. The type
+ * of a literal, group or binary expression only depends on its children, so
+ * these are always shared. The variable of an access and the function of a
+ * call depend on the scope, as does the type of a list, so these (and every
+ * expression containing one) are only shared once they have been analyzed,
+ * and then only with nodes set to the same object. An interned source can be
+ * analyzed again, since shared nodes still resolve alike.
+ *
+ * The interner is reused across sources, sharing their expressions too, and
+ * counts how many nodes it has shared, see {@link #getShared()}. The bodies of
+ * lazily parsed functions are loaded.
+ */
+public final class AstInterner {
+
+    private final Map<Key, Ast.Expression> expressions = new HashMap<>();
+    private final Set<Ast.Expression> interned = Collections.newSetFromMap(new IdentityHashMap<>());
+    private int nodes;
+    private int shared;
+
+    public Ast.Source intern(Ast.Source ast) {
+        List<Ast.Global> globals = new ArrayList<>();
+        boolean changed = false;
+        for (Ast.Global global : ast.getGlobals()) {
+            Ast.Global interned = intern(global);
+            changed |= interned != global;
+            globals.add(interned);
+        }
+        List<Ast.Function> functions = new ArrayList<>();
+        for (Ast.Function function : ast.getFunctions()) {
+            Ast.Function interned = intern(function);
+            changed |= interned != function;
+            functions.add(interned);
+        }
+        return changed ? new Ast.Source(globals, functions) : ast;
+    }
+
+    /**
+     * Returns the number of expressions which have been interned.
+     */
+    public int getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of expressions which were replaced by an equal one
+     * interned before, and so are no longer referenced by the result.
+     */
+    public int getShared() {
+        return shared;
+    }
+
+    private Ast.Global intern(Ast.Global ast) {
+        Optional<Ast.Expression> value = intern(ast.getValue());
+        if (value == ast.getValue()) {
+            return ast;
+        }
+        Ast.Global global = new Ast.Global(ast.getName(), ast.getTypeName(), ast.getMutable(), value);
+        Environment.Variable variable = (Environment.Variable) ast.getAnnotation();
+        if (variable != null) {
+            global.setVariable(variable);
+        }
+        return global;
+    }
+
+    private Ast.Function intern(Ast.Function ast) {
+        List<Ast.Statement> statements = intern(ast.getStatements());
+        if (statements == ast.getStatements()) {
+            return ast;
+        }
+        Ast.Function function = new Ast.Function(ast.getName(), ast.getParameters(), ast.getParameterTypeNames(), ast.getReturnTypeName(), statements);
+        Environment.Function annotation = (Environment.Function) ast.getAnnotation();
+        if (annotation != null) {
+            function.setFunction(annotation);
+        }
+        return function;
+    }
+
+    /**
+     * Returns the statements with their expressions interned, or the same
+     * list if none of them changed.
+     */
+    private List<Ast.Statement> intern(List<Ast.Statement> statements) {
+        List<Ast.Statement> interned = null;
+        for (int i = 0; i < statements.size(); i++) {
+            Ast.Statement statement = intern(statements.get(i));
+            if (interned == null && statement != statements.get(i)) {
+                interned = new ArrayList<>(statements.subList(0, i));
+            }
+            if (interned != null) {
+                interned.add(statement);
+            }
+        }
+        return interned != null ? interned : statements;
+    }
+
+    private Ast.Statement intern(Ast.Statement ast) {
+        if (ast instanceof Ast.Statement.Expression) {
+            Ast.Expression expression = intern(((Ast.Statement.Expression) ast).getExpression());
+            return expression == ((Ast.Statement.Expression) ast).getExpression() ? ast : new Ast.Statement.Expression(expression);
+        } else if (ast instanceof Ast.Statement.Declaration) {
+            Ast.Statement.Declaration declaration = (Ast.Statement.Declaration) ast;
+            Optional<Ast.Expression> value = intern(declaration.getValue());
+            if (value == declaration.getValue()) {
+                return ast;
+            }
+            Ast.Statement.Declaration interned = new Ast.Statement.Declaration(declaration.getName(), declaration.getTypeName(), value);
+            Environment.Variable variable = (Environment.Variable) declaration.getAnnotation();
+            if (variable != null) {
+                interned.setVariable(variable);
+            }
+            return interned;
+        } else if (ast instanceof Ast.Statement.Assignment) {
+            Ast.Statement.Assignment assignment = (Ast.Statement.Assignment) ast;
+            Ast.Expression receiver = intern(assignment.getReceiver());
+            Ast.Expression value = intern(assignment.getValue());
+            return receiver == assignment.getReceiver() && value == assignment.getValue() ? ast : new Ast.Statement.Assignment(receiver, value);
+        } else if (ast instanceof Ast.Statement.If) {
+            Ast.Statement.If statement = (Ast.Statement.If) ast;
+            Ast.Expression condition = intern(statement.getCondition());
+            List<Ast.Statement> thenStatements = intern(statement.getThenStatements());
+            List<Ast.Statement> elseStatements = intern(statement.getElseStatements());
+            return condition == statement.getCondition() && thenStatements == statement.getThenStatements() && elseStatements == statement.getElseStatements()
+                    ? ast : new Ast.Statement.If(condition, thenStatements, elseStatements);
+        } else if (ast instanceof Ast.Statement.Switch) {
+            Ast.Statement.Switch statement = (Ast.Statement.Switch) ast;
+            Ast.Expression condition = intern(statement.getCondition());
+            List<Ast.Statement.Case> cases = new ArrayList<>();
+            boolean changed = condition != statement.getCondition();
+            for (Ast.Statement.Case current : statement.getCases()) {
+                Ast.Statement.Case interned = (Ast.Statement.Case) intern(current);
+                changed |= interned != current;
+                cases.add(interned);
+            }
+            return changed ? new Ast.Statement.Switch(condition, cases) : ast;
+        } else if (ast instanceof Ast.Statement.Case) {
+            Ast.Statement.Case statement = (Ast.Statement.Case) ast;
+            Optional<Ast.Expression> value = intern(statement.getValue());
+            List<Ast.Statement> statements = intern(statement.getStatements());
+            return value == statement.getValue() && statements == statement.getStatements() ? ast : new Ast.Statement.Case(value, statements);
+        } else if (ast instanceof Ast.Statement.While) {
+            Ast.Statement.While statement = (Ast.Statement.While) ast;
+            Ast.Expression condition = intern(statement.getCondition());
+            List<Ast.Statement> statements = intern(statement.getStatements());
+            return condition == statement.getCondition() && statements == statement.getStatements() ? ast : new Ast.Statement.While(condition, statements);
+        } else if (ast instanceof Ast.Statement.Return) {
+            Ast.Expression value = intern(((Ast.Statement.Return) ast).getValue());
+            return value == ((Ast.Statement.Return) ast).getValue() ? ast : new Ast.Statement.Return(value);
+        } else {
+            throw new AssertionError("Unimplemented AST type: " + ast.getClass().getName() + ".");
+        }
+    }
+
+    /**
+     * Returns the optional of the interned expression, or the same optional if
+     * the expression did not change.
+     */
+    private Optional<Ast.Expression> intern(Optional<Ast.Expression> expression) {
+        if (!expression.isPresent()) {
+            return expression;
+        }
+        Ast.Expression interned = intern(expression.get());
+        return interned == expression.get() ? expression : Optional.of(interned);
+    }
+
+    /**
+     * Returns the interned expression, or the expression itself if it cannot
+     * be shared (see the class documentation) or is the first of its kind.
+     * The children of an expression are interned before it on an explicit
+     * stack, so a deeply nested expression does not recurse.
+     */
+    private Ast.Expression intern(Ast.Expression root) {
+        Ast.Expression[] stack = {root};
+        int[] counts = {-1};
+        int size = 1;
+        List<Ast.Expression> results = new ArrayList<>();
+        while (size > 0) {
+            Ast.Expression ast = stack[size - 1];
+            if (counts[size - 1] < 0) {
+                nodes++;
+                List<Ast.Expression> children = children(ast);
+                counts[size - 1] = children.size();
+                if (size + children.size() > stack.length) {
+                    int length = Math.max(stack.length * 2, size + children.size());
+                    stack = Arrays.copyOf(stack, length);
+                    counts = Arrays.copyOf(counts, length);
+                }
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    stack[size] = children.get(i);
+                    counts[size++] = -1;
+                }
+            } else {
+                int count = counts[--size];
+                stack[size] = null;
+                List<Ast.Expression> children = results.subList(results.size() - count, results.size());
+                Ast.Expression interned = intern(ast, children);
+                children.clear();
+                results.add(interned);
+            }
+        }
+        return results.get(0);
+    }
+
+    /**
+     * Returns the children of the expression, in order.
+     */
+    private static List<Ast.Expression> children(Ast.Expression ast) {
+        switch (ast.getKind()) {
+            case LITERAL:
+                return Collections.emptyList();
+            case GROUP:
+                return Collections.singletonList(((Ast.Expression.Group) ast).getExpression());
+            case BINARY:
+                return Arrays.asList(((Ast.Expression.Binary) ast).getLeft(), ((Ast.Expression.Binary) ast).getRight());
+            case ACCESS:
+                return ((Ast.Expression.Access) ast).getOffset().map(Collections::singletonList).orElse(Collections.emptyList());
+            case CALL:
+                return ((Ast.Expression.Function) ast).getArguments();
+            case LIST:
+                return ((Ast.Expression.PlcList) ast).getValues();
+            default:
+                throw new AssertionError("Unimplemented AST type: " + ast.getClass().getName() + ".");
+        }
+    }
+
+    /**
+     * Interns the expression given its interned children, in the order of
+     * {@link #children(Ast.Expression)}.
+     */
+    private Ast.Expression intern(Ast.Expression ast, List<Ast.Expression> children) {
+        Key key;
+        Ast.Expression copy;
+        if (ast instanceof Ast.Expression.Literal) {
+            Ast.Expression.Literal literal = (Ast.Expression.Literal) ast;
+            key = new Key(Ast.Expression.Literal.class, literal.getLiteral(), literal.getAnnotation());
+            copy = ast;
+        } else if (ast instanceof Ast.Expression.Group) {
+            Ast.Expression.Group group = (Ast.Expression.Group) ast;
+            Ast.Expression expression = children.get(0);
+            key = shareable(expression) ? new Key(Ast.Expression.Group.class, null, group.getAnnotation(), expression) : null;
+            copy = expression == group.getExpression() ? ast : typed(new Ast.Expression.Group(expression), group);
+        } else if (ast instanceof Ast.Expression.Binary) {
+            Ast.Expression.Binary binary = (Ast.Expression.Binary) ast;
+            Ast.Expression left = children.get(0);
+            Ast.Expression right = children.get(1);
+            key = shareable(left) && shareable(right) ? new Key(Ast.Expression.Binary.class, binary.getOperator(), binary.getAnnotation(), left, right) : null;
+            copy = left == binary.getLeft() && right == binary.getRight() ? ast : typed(new Ast.Expression.Binary(binary.getOperator(), left, right), binary);
+        } else if (ast instanceof Ast.Expression.Access) {
+            Ast.Expression.Access access = (Ast.Expression.Access) ast;
+            Optional<Ast.Expression> offset = access.getOffset();
+            if (offset.isPresent() && children.get(0) != offset.get()) {
+                offset = Optional.of(children.get(0));
+            }
+            Environment.Variable variable = (Environment.Variable) access.getAnnotation();
+            key = variable != null && (!offset.isPresent() || shareable(offset.get())) ? new Key(Ast.Expression.Access.class, access.getName(), variable, offset.orElse(null)) : null;
+            copy = ast;
+            if (offset != access.getOffset()) {
+                Ast.Expression.Access interned = new Ast.Expression.Access(offset, access.getName());
+                if (variable != null) {
+                    interned.setVariable(variable);
+                }
+                copy = interned;
+            }
+        } else if (ast instanceof Ast.Expression.Function) {
+            Ast.Expression.Function function = (Ast.Expression.Function) ast;
+            List<Ast.Expression> arguments = new ArrayList<>(children);
+            Environment.Function annotation = (Environment.Function) function.getAnnotation();
+            boolean changed = false;
+            boolean shareable = annotation != null;
+            for (int i = 0; i < arguments.size(); i++) {
+                changed |= arguments.get(i) != function.getArguments().get(i);
+                shareable &= shareable(arguments.get(i));
+            }
+            key = shareable ? new Key(Ast.Expression.Function.class, function.getName(), annotation, arguments.toArray()) : null;
+            copy = ast;
+            if (changed) {
+                Ast.Expression.Function interned = new Ast.Expression.Function(function.getName(), arguments);
+                if (annotation != null) {
+                    interned.setFunction(annotation);
+                }
+                copy = interned;
+            }
+        } else if (ast instanceof Ast.Expression.PlcList) {
+            Ast.Expression.PlcList list = (Ast.Expression.PlcList) ast;
+            List<Ast.Expression> values = new ArrayList<>(children);
+            Environment.Type type = (Environment.Type) list.getAnnotation();
+            boolean changed = false;
+            boolean shareable = type != null;
+            for (int i = 0; i < values.size(); i++) {
+                changed |= values.get(i) != list.getValues().get(i);
+                shareable &= shareable(values.get(i));
+            }
+            key = shareable ? new Key(Ast.Expression.PlcList.class, null, type, values.toArray()) : null;
+            copy = changed ? typed(new Ast.Expression.PlcList(values), list) : ast;
+        } else {
+            throw new AssertionError("Unimplemented AST type: " + ast.getClass().getName() + ".");
+        }
+        if (key == null) {
+            return copy;
+        }
+        Ast.Expression existing = expressions.putIfAbsent(key, copy);
+        if (existing == null) {
+            interned.add(copy);
+            return copy;
+        }
+        shared++;
+        return existing;
+    }
+
+    /**
+     * Returns whether the expression is the one interned for its key, which
+     * a parent needs to be shared itself.
+     */
+    private boolean shareable(Ast.Expression expression) {
+        return interned.contains(expression);
+    }
+
+    /**
+     * Sets the type of the copy to that of the original, if it has one.
+     */
+    private static Ast.Expression typed(Ast.Expression copy, Ast.Expression original) {
+        Environment.Type type = (Environment.Type) original.getAnnotation();
+        if (type != null) {
+            Annotations.IN_NODES.setType(copy, type);
+        }
+        return copy;
+    }
+
+    /**
+     * The values of an expression which decide whether it can be shared: its
+     * class, its own value (a literal, operator or name), what the analyzer
+     * set on it and its children, where the last two are compared by
+     * identity.
+     */
+    private static final class Key {
+
+        private final Class<?> kind;
+        private final Object value;
+        private final Object[] references;
+        private final int hash;
+
+        Key(Class<?> kind, Object value, Object... references) {
+            this.kind = kind;
+            this.value = value;
+            this.references = references;
+            int hash = kind.hashCode() * 31 + (value == null ? 0 : value.hashCode());
+            for (Object reference : references) {
+                hash = hash * 31 + System.identityHashCode(reference);
+            }
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            if (hash != other.hash || kind != other.kind || references.length != other.references.length || !Objects.equals(value, other.value)) {
+                return false;
+            }
+            for (int i = 0; i < references.length; i++) {
+                if (references[i] != other.references[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+}
@@ -0,0 +1,245 @@
+package plc.project;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Writes the text of a tree, as returned by {@link Ast#toString()}, to an
+ * {@link Appendable} such as a {@link java.io.Writer} as it goes, rather than
+ * building it up as one string. The walk keeps what remains to be written on
+ * an explicit stack, so a deep tree neither recurses nor overflows the stack.
+ *
+ * The output can be bounded by {@link #setMaxDepth(int)}, which writes
+ * {@code ...} in place of the nodes nested deeper than the limit, and {@link
+ * #setMaxNodes(int)}, which writes {@code ...} in place of the first node
+ * past the limit and stops there. Either way, the truncated text is a prefix
+ * of the full text up to the first {@code ...}.
+ */
+public final class AstPrinter {
+
+    private static final String ELLIPSIS = "...";
+
+    private int maxDepth = Integer.MAX_VALUE;
+    private int maxNodes = Integer.MAX_VALUE;
+
+    private Object[] stack = new Object[16];
+    private int[] depths = new int[16];
+    private int size;
+
+    /**
+     * Sets the deepest nodes written, where the node given to {@link
+     * #print(Ast, Appendable)} has a depth of 0 and each node's children have
+     * one more than it.
+     */
+    public void setMaxDepth(int maxDepth) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("The maximum depth must not be negative, received " + maxDepth + ".");
+        }
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Sets the most nodes written.
+     */
+    public void setMaxNodes(int maxNodes) {
+        if (maxNodes < 0) {
+            throw new IllegalArgumentException("The maximum number of nodes must not be negative, received " + maxNodes + ".");
+        }
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Returns the text of the tree within the limits.
+     */
+    public String print(Ast ast) {
+        StringBuilder builder = new StringBuilder();
+        try {
+            print(ast, builder);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Writes the text of the tree within the limits. The bodies of lazily
+     * parsed functions are loaded as they are reached.
+     */
+    public void print(Ast ast, Appendable out) throws IOException {
+        int nodes = 0;
+        size = 0;
+        try {
+            push(ast, 0);
+            while (size > 0) {
+                Object next = stack[--size];
+                int depth = depths[size];
+                stack[size] = null;
+                if (next instanceof String) {
+                    out.append((String) next);
+                } else if (next instanceof Ast) {
+                    if (depth > maxDepth) {
+                        out.append(ELLIPSIS);
+                    } else if (nodes++ == maxNodes) {
+                        out.append(ELLIPSIS);
+                        return;
+                    } else {
+                        expand((Ast) next, depth + 1, out);
+                    }
+                } else if (next instanceof List) {
+                    List<?> list = (List<?>) next;
+                    out.append('[');
+                    push("]", depth);
+                    for (int i = list.size() - 1; i >= 0; i--) {
+                        push(list.get(i), depth);
+                        if (i > 0) {
+                            push(", ", depth);
+                        }
+                    }
+                } else if (next instanceof Optional) {
+                    Optional<?> optional = (Optional<?>) next;
+                    if (optional.isPresent()) {
+                        out.append("Optional[");
+                        push("]", depth);
+                        push(optional.get(), depth);
+                    } else {
+                        out.append("Optional.empty");
+                    }
+                } else {
+                    out.append(String.valueOf(next));
+                }
+            }
+        } finally {
+            Arrays.fill(stack, 0, size, null);
+            size = 0;
+        }
+    }
+
+    /**
+     * Writes or pushes the parts of the node's text, in which its children
+     * have the given depth.
+     */
+    private void expand(Ast ast, int depth, Appendable out) throws IOException {
+        switch (ast.getKind()) {
+            case SOURCE: {
+                Ast.Source source = (Ast.Source) ast;
+                write(out, depth, "Ast.Source{globals=", source.getGlobals(), ", functions=", source.getFunctions(), "}");
+                break;
+            }
+            case GLOBAL: {
+                Ast.Global global = (Ast.Global) ast;
+                write(out, depth, "Ast.Global{name='", global.getName(), "', typeName=", global.getTypeName(),
+                        ", mutable=", global.getMutable(), ", value=", global.getValue(), ", variable=", global.getAnnotation(), "}");
+                break;
+            }
+            case FUNCTION: {
+                Ast.Function function = (Ast.Function) ast;
+                write(out, depth, "Ast.Function{name='", function.getName(), "', parameters=", function.getParameters(),
+                        ", parameterTypeNames=", function.getParameterTypeNames(), ", returnTypeName='", function.getReturnTypeName().toString(),
+                        "', statements=", function.getStatements(), ", function=", function.getAnnotation(), "}");
+                break;
+            }
+            case EXPRESSION:
+                write(out, depth, "Ast.Statement.Expression{expression=", ((Ast.Statement.Expression) ast).getExpression(), "}");
+                break;
+            case DECLARATION: {
+                Ast.Statement.Declaration declaration = (Ast.Statement.Declaration) ast;
+                write(out, depth, "Ast.Statement.Declaration{name='", declaration.getName(), "', typeName=", declaration.getTypeName().toString(),
+                        ", value=", declaration.getValue(), ", variable=", declaration.getAnnotation(), "}");
+                break;
+            }
+            case ASSIGNMENT: {
+                Ast.Statement.Assignment assignment = (Ast.Statement.Assignment) ast;
+                write(out, depth, "Ast.Statement.Assignment{receiver=", assignment.getReceiver(), ", value=", assignment.getValue(), "}");
+                break;
+            }
+            case IF: {
+                Ast.Statement.If statement = (Ast.Statement.If) ast;
+                write(out, depth, "Ast.Statement.If{condition=", statement.getCondition(), ", thenStatements=", statement.getThenStatements(),
+                        ", elseStatements=", statement.getElseStatements(), "}");
+                break;
+            }
+            case SWITCH: {
+                Ast.Statement.Switch statement = (Ast.Statement.Switch) ast;
+                write(out, depth, "Ast.Statement.Switch{condition=", statement.getCondition(), ", cases=", statement.getCases(), "}");
+                break;
+            }
+            case CASE: {
+                Ast.Statement.Case statement = (Ast.Statement.Case) ast;
+                write(out, depth, "Ast.Statement.Case{value=", statement.getValue(), ", statements=", statement.getStatements(), "}");
+                break;
+            }
+            case WHILE: {
+                Ast.Statement.While statement = (Ast.Statement.While) ast;
+                write(out, depth, "Ast.Statement.While{condition=", statement.getCondition(), ", statements=", statement.getStatements(), "}");
+                break;
+            }
+            case RETURN:
+                write(out, depth, "Ast.Statement.Return{value=", ((Ast.Statement.Return) ast).getValue(), "}");
+                break;
+            case LITERAL: {
+                Ast.Expression.Literal literal = (Ast.Expression.Literal) ast;
+                write(out, depth, "Ast.Expression.Literal{literal=", String.valueOf(literal.getLiteral()), ", type=", literal.getAnnotation(), "}");
+                break;
+            }
+            case GROUP:
+                write(out, depth, "Ast.Expression.Group{expression=", ((Ast.Expression.Group) ast).getExpression(), ", type=", ast.getAnnotation(), "}");
+                break;
+            case BINARY: {
+                Ast.Expression.Binary binary = (Ast.Expression.Binary) ast;
+                write(out, depth, "Ast.Expression.Binary{operator='", binary.getOperator(), "', left=", binary.getLeft(),
+                        ", right=", binary.getRight(), ", type=", binary.getAnnotation(), "}");
+                break;
+            }
+            case ACCESS: {
+                Ast.Expression.Access access = (Ast.Expression.Access) ast;
+                write(out, depth, "Ast.Expression.Access{offset=", access.getOffset(), ", name='", access.getName(),
+                        "', variable=", access.getAnnotation(), "}");
+                break;
+            }
+            case CALL: {
+                Ast.Expression.Function function = (Ast.Expression.Function) ast;
+                write(out, depth, "Ast.Expression.Function{name='", function.getName(), "', arguments=", function.getArguments(),
+                        ", function=", function.getAnnotation(), "}");
+                break;
+            }
+            case LIST:
+                write(out, depth, "Ast.Expression.PlcList{values=[", ((Ast.Expression.PlcList) ast).getValues(), "], type=", ast.getAnnotation(), "}");
+                break;
+            default:
+                throw new AssertionError("Unimplemented AST type: " + ast.getClass().getName() + ".");
+        }
+    }
+
+    /**
+     * Writes the parts up to the first node, list or optional, and pushes
+     * that and the rest to be written in turn.
+     */
+    private void write(Appendable out, int depth, Object... parts) throws IOException {
+        int first = 0;
+        for (; first < parts.length; first++) {
+            Object part = parts[first];
+            if (part instanceof String) {
+                out.append((String) part);
+            } else if (part instanceof Ast || part instanceof List || part instanceof Optional) {
+                break;
+            } else {
+                out.append(String.valueOf(part));
+            }
+        }
+        for (int i = parts.length - 1; i >= first; i--) {
+            push(parts[i], depth);
+        }
+    }
+
+    private void push(Object part, int depth) {
+        if (size == stack.length) {
+            stack = Arrays.copyOf(stack, size * 2);
+            depths = Arrays.copyOf(depths, size * 2);
+        }
+        stack[size] = part;
+        depths[size++] = depth;
+    }
+
+}
@@ -0,0 +1,257 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reduces every node of a tree to a single result, for read-only passes
+ * such as metrics, lints, hashes or size accounting. Each node not skipped by
+ * {@link #prune} gives a result from {@link #node}, and the results are
+ * combined in pre-order, as if folded left to right starting from {@link
+ * #identity()}. As {@link #combine} must be associative, the tree can be cut
+ * into independent subtrees, such as the functions of a source, the
+ * statements of a block or the arguments of a call, whose results are
+ * combined in the same order however they were split.
+ *
+ * {@link #reduce(Ast)} walks the tree on the calling thread, and {@link
+ * #reduceParallel(Ast, ForkJoinPool)} on a fork-join pool. The walk keeps the
+ * subtrees it has yet to visit on an explicit stack, so deep trees do not
+ * recurse. In parallel, a task which has visited at least {@link
+ * #setThreshold(int) threshold} nodes since it last split, while the pool is
+ * short of queued work, forks the later half of its pending subtrees off as a
+ * new task. Small trees, or trees reduced on a busy pool, are thus walked
+ * sequentially without knowing the size of any subtree ahead of time. In
+ * that case the methods below are called from several threads at once, so
+ * they must not share mutable state.
+ *
+ * The bodies of lazily parsed functions are loaded unless pruned.
+ */
+public abstract class AstReducer<R> {
+
+    /**
+     * The default value of {@link #setThreshold(int)}.
+     */
+    public static final int DEFAULT_THRESHOLD = 1 << 10;
+
+    /**
+     * The most tasks a worker may have queued and still fork another, as a
+     * sign that the rest of the pool has run out of work to steal.
+     */
+    private static final int MAX_SURPLUS = 3;
+
+    private int threshold = DEFAULT_THRESHOLD;
+
+    /**
+     * Returns the result of a tree with no nodes, such that combining it
+     * with any result gives that result.
+     */
+    protected abstract R identity();
+
+    /**
+     * Returns the result of the node itself, without its children.
+     */
+    protected abstract R node(Ast ast);
+
+    /**
+     * Combines the results of two consecutive parts of the tree. This must be
+     * associative, but need not be commutative.
+     */
+    protected abstract R combine(R left, R right);
+
+    /**
+     * Returns whether the children of the node should be skipped. The node
+     * itself has been visited already.
+     */
+    protected boolean prune(Ast ast) {
+        return false;
+    }
+
+    /**
+     * Sets the fewest nodes a task visits on its own before it may split off
+     * part of its work, which bounds how small the forked tasks can get.
+     */
+    public void setThreshold(int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("The threshold must be positive, received " + threshold + ".");
+        }
+        this.threshold = threshold;
+    }
+
+    /**
+     * Reduces the tree on the calling thread.
+     */
+    public final R reduce(Ast ast) {
+        return new Task(new Ast[] {ast}, 1, false).compute();
+    }
+
+    /**
+     * Reduces the tree using the common fork-join pool, see {@link
+     * #reduceParallel(Ast, ForkJoinPool)}.
+     */
+    public final R reduceParallel(Ast ast) {
+        return reduceParallel(ast, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Reduces the tree on the given pool. The result is the same as that of
+     * {@link #reduce(Ast)}, and an exception thrown by any task is rethrown.
+     */
+    public final R reduceParallel(Ast ast, ForkJoinPool pool) {
+        return pool.invoke(new Task(new Ast[] {ast}, 1, true));
+    }
+
+    /**
+     * Walks the subtrees on its stack, the last of which comes first in
+     * pre-order.
+     */
+    private final class Task extends RecursiveTask<R> {
+
+        private static final long serialVersionUID = 1L;
+
+        private Ast[] stack;
+        private int size;
+        private final boolean parallel;
+
+        private Task(Ast[] stack, int size, boolean parallel) {
+            this.stack = stack;
+            this.size = size;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected R compute() {
+            R result = identity();
+            List<Task> forked = null;
+            int visited = 0;
+            while (size > 0) {
+                Ast ast = stack[--size];
+                stack[size] = null;
+                result = combine(result, node(ast));
+                if (!prune(ast)) {
+                    pushChildren(ast);
+                }
+                if (parallel && ++visited >= threshold && size > 1 && getSurplusQueuedTaskCount() <= MAX_SURPLUS) {
+                    if (forked == null) {
+                        forked = new ArrayList<>();
+                    }
+                    forked.add(split());
+                    visited = 0;
+                }
+            }
+            // Each split took subtrees which come before those of the previous
+            // splits, so the results are combined from the last split back.
+            if (forked != null) {
+                for (int i = forked.size() - 1; i >= 0; i--) {
+                    result = combine(result, forked.get(i).join());
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Forks the bottom half of the stack, the subtrees which come last,
+         * as a new task.
+         */
+        private Task split() {
+            int half = size / 2;
+            Task task = new Task(Arrays.copyOf(stack, Math.max(half, 16)), half, true);
+            System.arraycopy(stack, half, stack, 0, size - half);
+            Arrays.fill(stack, size - half, size, null);
+            size -= half;
+            task.fork();
+            return task;
+        }
+
+        /**
+         * Pushes the children of the node in reverse, so they are popped in
+         * order.
+         */
+        private void pushChildren(Ast ast) {
+            switch (ast.getKind()) {
+                case SOURCE:
+                    pushAll(((Ast.Source) ast).getFunctions());
+                    pushAll(((Ast.Source) ast).getGlobals());
+                    break;
+                case GLOBAL:
+                    push(((Ast.Global) ast).getValue());
+                    break;
+                case FUNCTION:
+                    pushAll(((Ast.Function) ast).getStatements());
+                    break;
+                case EXPRESSION:
+                    push(((Ast.Statement.Expression) ast).getExpression());
+                    break;
+                case DECLARATION:
+                    push(((Ast.Statement.Declaration) ast).getValue());
+                    break;
+                case ASSIGNMENT:
+                    push(((Ast.Statement.Assignment) ast).getValue());
+                    push(((Ast.Statement.Assignment) ast).getReceiver());
+                    break;
+                case IF:
+                    pushAll(((Ast.Statement.If) ast).getElseStatements());
+                    pushAll(((Ast.Statement.If) ast).getThenStatements());
+                    push(((Ast.Statement.If) ast).getCondition());
+                    break;
+                case SWITCH:
+                    pushAll(((Ast.Statement.Switch) ast).getCases());
+                    push(((Ast.Statement.Switch) ast).getCondition());
+                    break;
+                case CASE:
+                    pushAll(((Ast.Statement.Case) ast).getStatements());
+                    push(((Ast.Statement.Case) ast).getValue());
+                    break;
+                case WHILE:
+                    pushAll(((Ast.Statement.While) ast).getStatements());
+                    push(((Ast.Statement.While) ast).getCondition());
+                    break;
+                case RETURN:
+                    push(((Ast.Statement.Return) ast).getValue());
+                    break;
+                case LITERAL:
+                    break;
+                case GROUP:
+                    push(((Ast.Expression.Group) ast).getExpression());
+                    break;
+                case BINARY:
+                    push(((Ast.Expression.Binary) ast).getRight());
+                    push(((Ast.Expression.Binary) ast).getLeft());
+                    break;
+                case ACCESS:
+                    push(((Ast.Expression.Access) ast).getOffset());
+                    break;
+                case CALL:
+                    pushAll(((Ast.Expression.Function) ast).getArguments());
+                    break;
+                case LIST:
+                    pushAll(((Ast.Expression.PlcList) ast).getValues());
+                    break;
+                default:
+                    throw new AssertionError("Unimplemented AST type: " + ast.getClass().getName() + ".");
+            }
+        }
+
+        private void pushAll(List<? extends Ast> children) {
+            for (int i = children.size() - 1; i >= 0; i--) {
+                push(children.get(i));
+            }
+        }
+
+        private void push(Optional<? extends Ast> child) {
+            child.ifPresent(this::push);
+        }
+
+        private void push(Ast child) {
+            if (size == stack.length) {
+                stack = Arrays.copyOf(stack, size * 2);
+            }
+            stack[size++] = child;
+        }
+
+    }
+
+}
@@ -0,0 +1,143 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Walks the binary expressions, groups and calls nested in an expression with
+ * an explicit stack, so that a visitor handles a chain of thousands of
+ * operands, or deeply nested parentheses or calls, without recursing once per
+ * level and overflowing the Java stack.
+ *
+ * A visitor implements the events of the walk and calls {@link #walk} from
+ * its visits of {@link Ast.Expression.Binary}, {@link Ast.Expression.Group}
+ * and {@link Ast.Expression.Function}. Each of these is entered, then its
+ * operands are walked (with {@link #infix} between the two operands of a
+ * binary expression, and {@link #argument} after each argument of a call) and
+ * it is exited with their results. Any other expression is a leaf, which the
+ * visitor visits as usual; the offsets and list values under those are only
+ * nested as far as the source spells out.
+ */
+public abstract class ExpressionWalker<T> {
+
+    private Ast.Expression[] nodes = new Ast.Expression[16];
+    private int[] states = new int[16];
+    private int top;
+    private Object[] results = new Object[16];
+    private int count;
+
+    /**
+     * Returns the result of a leaf, which is neither a binary expression nor
+     * a group.
+     */
+    protected abstract T leaf(Ast.Expression ast);
+
+    protected void enter(Ast.Expression.Binary ast) {}
+
+    protected void infix(Ast.Expression.Binary ast) {}
+
+    protected abstract T exit(Ast.Expression.Binary ast, T left, T right);
+
+    protected void enter(Ast.Expression.Group ast) {}
+
+    protected abstract T exit(Ast.Expression.Group ast, T expression);
+
+    protected void enter(Ast.Expression.Function ast) {}
+
+    /**
+     * Called after the argument at the index has been walked.
+     */
+    protected void argument(Ast.Expression.Function ast, int index, T result) {}
+
+    protected abstract T exit(Ast.Expression.Function ast, List<T> arguments);
+
+    /**
+     * Walks the expression and returns its result. A leaf may start another
+     * walk, such as for the arguments of a call, which uses the stacks above
+     * those of this one. If an event throws, the stacks are cleared back to
+     * where this walk started.
+     */
+    @SuppressWarnings("unchecked")
+    public final T walk(Ast.Expression ast) {
+        int nodeBase = top;
+        int resultBase = count;
+        try {
+            push(ast);
+            while (top > nodeBase) {
+                Ast.Expression node = nodes[top - 1];
+                int state = states[top - 1]++;
+                Ast.Kind kind = node.getKind();
+                if (kind == Ast.Kind.BINARY) {
+                    Ast.Expression.Binary binary = (Ast.Expression.Binary) node;
+                    if (state == 0) {
+                        enter(binary);
+                        push(binary.getLeft());
+                        continue;
+                    } else if (state == 1) {
+                        infix(binary);
+                        push(binary.getRight());
+                        continue;
+                    }
+                    T right = (T) results[--count];
+                    results[count] = null;
+                    results[count - 1] = exit(binary, (T) results[count - 1], right);
+                } else if (kind == Ast.Kind.GROUP) {
+                    Ast.Expression.Group group = (Ast.Expression.Group) node;
+                    if (state == 0) {
+                        enter(group);
+                        push(group.getExpression());
+                        continue;
+                    }
+                    results[count - 1] = exit(group, (T) results[count - 1]);
+                } else if (kind == Ast.Kind.CALL) {
+                    Ast.Expression.Function function = (Ast.Expression.Function) node;
+                    List<Ast.Expression> arguments = function.getArguments();
+                    if (state == 0) {
+                        enter(function);
+                    } else {
+                        argument(function, state - 1, (T) results[count - 1]);
+                    }
+                    if (state < arguments.size()) {
+                        push(arguments.get(state));
+                        continue;
+                    }
+                    List<T> values = new ArrayList<>(arguments.size());
+                    for (int i = count - arguments.size(); i < count; i++) {
+                        values.add((T) results[i]);
+                        results[i] = null;
+                    }
+                    count -= arguments.size();
+                    T result = exit(function, values);
+                    if (count == results.length) {
+                        results = Arrays.copyOf(results, count * 2);
+                    }
+                    results[count++] = result;
+                } else {
+                    T result = leaf(node);
+                    if (count == results.length) {
+                        results = Arrays.copyOf(results, count * 2);
+                    }
+                    results[count++] = result;
+                }
+                nodes[--top] = null;
+            }
+            return (T) results[resultBase];
+        } finally {
+            Arrays.fill(nodes, nodeBase, top, null);
+            Arrays.fill(results, resultBase, count, null);
+            top = nodeBase;
+            count = resultBase;
+        }
+    }
+
+    private void push(Ast.Expression ast) {
+        if (top == nodes.length) {
+            nodes = Arrays.copyOf(nodes, top * 2);
+            states = Arrays.copyOf(states, top * 2);
+        }
+        nodes[top] = ast;
+        states[top++] = 0;
+    }
+
+}
@@ -6,10 +6,85 @@ import java.util.List;
 public final class Generator implements Ast.Visitor<Void> {
 
     private final PrintWriter writer;
+    private final Annotations annotations;
     private int indent = 0;
 
+    /**
+     * Generates chains of binary expressions, groups and calls without
+     * recursing per level, see {@link ExpressionWalker}.
+     */
+    private final ExpressionWalker<Void> expressions = new ExpressionWalker<Void>() {
+
+        @Override
+        protected Void leaf(Ast.Expression ast) {
+            return Generator.this.visit(ast);
+        }
+
+        @Override
+        protected void enter(Ast.Expression.Binary ast) {
+            if(ast.getOperator().equals("^"))
+                print("Math.pow(");
+        }
+
+        @Override
+        protected void infix(Ast.Expression.Binary ast) {
+            if(ast.getOperator().equals("^"))
+                print(", ");
+            else {
+                print(" ");
+                print(ast.getOperator()); print(" ");
+            }
+        }
+
+        @Override
+        protected Void exit(Ast.Expression.Binary ast, Void left, Void right) {
+            if(ast.getOperator().equals("^"))
+                print(")");
+            return null;
+        }
+
+        @Override
+        protected void enter(Ast.Expression.Group ast) {
+            print("(");
+        }
+
+        @Override
+        protected Void exit(Ast.Expression.Group ast, Void expression) {
+            print(")");
+            return null;
+        }
+
+        @Override
+        protected void enter(Ast.Expression.Function ast) {
+            print(annotations.getFunction(ast).getJvmName());
+            print("(");
+        }
+
+        @Override
+        protected void argument(Ast.Expression.Function ast, int index, Void result) {
+            if(ast.getArguments().size() != 1)
+                print(", ");
+        }
+
+        @Override
+        protected Void exit(Ast.Expression.Function ast, List<Void> arguments) {
+            print(")");
+            return null;
+        }
+
+    };
+
     public Generator(PrintWriter writer) {
+        this(writer, Annotations.IN_NODES);
+    }
+
+    /**
+     * Creates a generator which reads the results of the analysis from the
+     * given annotations rather than the nodes.
+     */
+    public Generator(PrintWriter writer, Annotations annotations) {
         this.writer = writer;
+        this.annotations = annotations;
     }
 
     private void print(Object... objects) {
@@ -81,7 +156,7 @@ public final class Generator implements Ast.Visitor<Void> {
 
     @Override
     public Void visit(Ast.Function ast) {
-        print(ast.getFunction().getReturnType().getJvmName() + " " + ast.getName() + "(");
+        print(annotations.getFunction(ast).getReturnType().getJvmName() + " " + ast.getName() + "(");
         for (int i = 0; i < ast.getParameters().size(); i++) {
             print(Environment.getType(ast.getParameterTypeNames().get(i)).getJvmName() + " ");
             print(ast.getParameters().get(i));
@@ -117,7 +192,7 @@ public final class Generator implements Ast.Visitor<Void> {
     @Override
     public Void visit(Ast.Statement.Declaration ast) {
 
-        print(ast.getVariable().getType().getJvmName() + " " + ast.getName());
+        print(annotations.getVariable(ast).getType().getJvmName() + " " + ast.getName());
 
         if(ast.getValue().isPresent()){
             print(" = ");
@@ -244,25 +319,25 @@ public final class Generator implements Ast.Visitor<Void> {
 
     @Override
     public Void visit(Ast.Expression.Literal ast) {
-        if(ast.getType().equals(Environment.Type.NIL))
+        if(annotations.getType(ast).equals(Environment.Type.NIL))
             print("null");
         else if(ast.getLiteral().equals(true))
             print("true");
         else if(ast.getLiteral().equals(false))
             print("false");
-        else if(ast.getType().equals(Environment.Type.STRING)) {
+        else if(annotations.getType(ast).equals(Environment.Type.STRING)) {
             String literal = "\"" + ast.getLiteral().toString() + "\"";
             print(literal);
         }
-        else if(ast.getType().equals(Environment.Type.CHARACTER)) {
+        else if(annotations.getType(ast).equals(Environment.Type.CHARACTER)) {
             String literal = "'" + ast.getLiteral().toString() + "'";
             print(literal);
         }
-        else if(ast.getType().equals(Environment.Type.INTEGER)) {
+        else if(annotations.getType(ast).equals(Environment.Type.INTEGER)) {
             String literal = ast.getLiteral().toString();
             print(literal);
         }
-        else if(ast.getType().equals(Environment.Type.DECIMAL)) {
+        else if(annotations.getType(ast).equals(Environment.Type.DECIMAL)) {
             String literal = ast.getLiteral().toString();
             print(literal);
         }
@@ -272,40 +347,22 @@ public final class Generator implements Ast.Visitor<Void> {
 
     @Override
     public Void visit(Ast.Expression.Group ast) {
-        print("(");
-        visit(ast.getExpression());
-        print(")");
-
-        return null;
+        return expressions.walk(ast);
     }
 
     @Override
     public Void visit(Ast.Expression.Binary ast) {
-        String operator = ast.getOperator().toString();
-
-
-        if(operator.equals("^")) {
-            print("Math.pow(");
-            visit(ast.getLeft()); print(", ");
-            visit(ast.getRight()); print(")");
-        }
-        else {
-            visit(ast.getLeft()); print(" ");
-            print(ast.getOperator().toString()); print(" ");
-            visit(ast.getRight());
-        }
-
-        return null;
+        return expressions.walk(ast);
     }
 
     @Override
     public Void visit(Ast.Expression.Access ast) {
         if(ast.getOffset().isPresent()) {   // LIST ACCESS
-            print(ast.getVariable().getJvmName()); print("[");
+            print(annotations.getVariable(ast).getJvmName()); print("[");
             visit(ast.getOffset().get()); print("]");
         }
         else {  // VARIABLE ACCESS
-            print(ast.getVariable().getJvmName());
+            print(annotations.getVariable(ast).getJvmName());
         }
 
         return null;
@@ -313,19 +370,7 @@ public final class Generator implements Ast.Visitor<Void> {
 
     @Override
     public Void visit(Ast.Expression.Function ast) {
-        String name = ast.getFunction().getJvmName();
-        List<Ast.Expression> arguments = ast.getArguments();
-        print(name);
-        print("(");
-
-        for(Ast.Expression argument : arguments) {
-            visit(argument);
-            if(arguments.size() != 1)
-                print(", ");
-        }
-        print(")");
-
-        return null;
+        return expressions.walk(ast);
     }
 
     @Override
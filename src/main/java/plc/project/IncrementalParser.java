@@ -0,0 +1,181 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the {@link Ast.Source} of an input up to date as it is edited, by only
+ * reparsing the globals and functions which contain the edit. Every other item
+ * of the previous source is shared by reference with the new one, so work such
+ * as analysis can be skipped for them too.
+ *
+ * Each edit should be applied to the tokens with {@link
+ * Lexer#relex(TokenBuffer, int, int, int)}, which likewise only relexes the
+ * changed range, and then to the AST with {@link #reparse}. The parser records
+ * the character range of each item to find the ones an edit touches.
+ *
+ * An item is reused if it ends before the edit (the lexer only looks one
+ * character past a token) or starts after it. The items in between are
+ * reparsed from the end of the last item before the edit until the tokens
+ * reach the (shifted) start of an item after it, absorbing any later items
+ * the new text overruns.
+ */
+public final class IncrementalParser {
+
+    private final Parser parser = new Parser(new TokenBuffer(""));
+
+    private Ast.Source source;
+    private Ast[] items = new Ast[0];
+    private int[] starts = new int[0];
+    private int[] ends = new int[0];
+    private int count;
+
+    /**
+     * Items parsed by {@link #parseUntil}, with their character ranges.
+     */
+    private Ast[] parsed = new Ast[16];
+    private int[] parsedStarts = new int[16];
+    private int[] parsedEnds = new int[16];
+    private int parsedCount;
+
+    /**
+     * Parses the whole input, as for {@link Parser#parseSource()}.
+     */
+    public Ast.Source parse(TokenBuffer tokens) throws ParseException {
+        parser.reset(tokens);
+        parsedCount = 0;
+        parseUntil(tokens, Integer.MAX_VALUE);
+        items = Arrays.copyOf(parsed, parsedCount);
+        starts = Arrays.copyOf(parsedStarts, parsedCount);
+        ends = Arrays.copyOf(parsedEnds, parsedCount);
+        count = parsedCount;
+        Arrays.fill(parsed, 0, parsedCount, null);
+        return source = build();
+    }
+
+    /**
+     * Updates the previous source after an edit which replaced {@code removed}
+     * characters at {@code offset} with {@code inserted} new characters, given
+     * the tokens of the edited input. The result is the same as parsing those
+     * tokens from scratch.
+     *
+     * The previous source must be the last one returned by this parser. If
+     * the edited input fails to parse, the exception is thrown and the
+     * previous source remains current.
+     */
+    public Ast.Source reparse(Ast.Source previous, int offset, int removed, int inserted, TokenBuffer tokens) throws ParseException {
+        if (previous != source) {
+            throw new IllegalArgumentException("The previous source was not the last one returned by this parser.");
+        }
+        int delta = inserted - removed;
+        int first = firstAffected(offset);
+        int next = first;
+        while (next < count && starts[next] <= offset + removed) {
+            next++;
+        }
+        parser.reset(tokens);
+        parser.seek(search(tokens, first == 0 ? 0 : ends[first - 1]));
+        parsedCount = 0;
+        while (true) {
+            int target = next < count ? starts[next] + delta : Integer.MAX_VALUE;
+            int position = parseUntil(tokens, target);
+            if (next == count || (position < tokens.size() && tokens.getIndex(position) == target)) {
+                break;
+            }
+            next++;
+        }
+        int size = first + parsedCount + count - next;
+        Ast[] items = new Ast[size];
+        int[] starts = new int[size];
+        int[] ends = new int[size];
+        System.arraycopy(this.items, 0, items, 0, first);
+        System.arraycopy(this.starts, 0, starts, 0, first);
+        System.arraycopy(this.ends, 0, ends, 0, first);
+        System.arraycopy(parsed, 0, items, first, parsedCount);
+        System.arraycopy(parsedStarts, 0, starts, first, parsedCount);
+        System.arraycopy(parsedEnds, 0, ends, first, parsedCount);
+        System.arraycopy(this.items, next, items, first + parsedCount, count - next);
+        for (int i = next, j = first + parsedCount; i < count; i++, j++) {
+            starts[j] = this.starts[i] + delta;
+            ends[j] = this.ends[i] + delta;
+        }
+        Arrays.fill(parsed, 0, parsedCount, null);
+        this.items = items;
+        this.starts = starts;
+        this.ends = ends;
+        this.count = size;
+        return source = build();
+    }
+
+    /**
+     * Parses items until the next token starts at or after the target, or the
+     * tokens run out, and returns the position of that token.
+     */
+    private int parseUntil(TokenBuffer tokens, int target) throws ParseException {
+        int position = parser.position();
+        while (position < tokens.size() && tokens.getIndex(position) < target) {
+            Ast item = parser.parseItem();
+            if (parsedCount == parsed.length) {
+                parsed = Arrays.copyOf(parsed, parsedCount * 2);
+                parsedStarts = Arrays.copyOf(parsedStarts, parsedCount * 2);
+                parsedEnds = Arrays.copyOf(parsedEnds, parsedCount * 2);
+            }
+            parsed[parsedCount] = item;
+            parsedStarts[parsedCount] = tokens.getIndex(position);
+            position = parser.position();
+            parsedEnds[parsedCount] = tokens.getIndex(position - 1) + tokens.getLength(position - 1);
+            parsedCount++;
+        }
+        return position;
+    }
+
+    /**
+     * Returns the index of the first item which ends at or after the offset.
+     */
+    private int firstAffected(int offset) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ends[middle] < offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the position of the first token which starts at or after the
+     * given character offset.
+     */
+    private static int search(TokenBuffer tokens, int offset) {
+        int low = 0;
+        int high = tokens.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (tokens.getIndex(middle) < offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private Ast.Source build() {
+        List<Ast.Global> globals = new ArrayList<>();
+        List<Ast.Function> functions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (items[i] instanceof Ast.Global) {
+                globals.add((Ast.Global) items[i]);
+            } else {
+                functions.add((Ast.Function) items[i]);
+            }
+        }
+        return new Ast.Source(globals, functions);
+    }
+
+}
@@ -17,6 +17,40 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     private Scope scope = new Scope(null);
 
+    /**
+     * Evaluates chains of binary expressions, groups and calls without
+     * recursing per level, see {@link ExpressionWalker}.
+     */
+    private final ExpressionWalker<Environment.PlcObject> expressions = new ExpressionWalker<Environment.PlcObject>() {
+
+        @Override
+        protected Environment.PlcObject leaf(Ast.Expression ast) {
+            return Interpreter.this.visit(ast);
+        }
+
+        @Override
+        protected Environment.PlcObject exit(Ast.Expression.Binary ast, Environment.PlcObject left, Environment.PlcObject right) {
+            return evaluate(ast, left, right);
+        }
+
+        @Override
+        protected Environment.PlcObject exit(Ast.Expression.Group ast, Environment.PlcObject expression) {
+            return expression;
+        }
+
+        @Override
+        protected void enter(Ast.Expression.Function ast) {
+            scope = new Scope(scope);
+        }
+
+        @Override
+        protected Environment.PlcObject exit(Ast.Expression.Function ast, List<Environment.PlcObject> arguments) {
+            Environment.Function function = scope.lookupFunction(ast.getName(), ast.getArguments().size());
+            return function.invoke(arguments);
+        }
+
+    };
+
     public Interpreter(Scope parent) {
         scope = new Scope(parent);
         scope.defineFunction("print", 1, args -> {
@@ -257,14 +291,18 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     @Override
     public Environment.PlcObject visit(Ast.Expression.Group ast) {
-        return visit(ast.getExpression());
+        return expressions.walk(ast);
     }
 
     @Override
     public Environment.PlcObject visit(Ast.Expression.Binary ast) {
-        Environment.PlcObject left = visit(ast.getLeft());
-        Environment.PlcObject right = visit(ast.getRight());
+        return expressions.walk(ast);
+    }
 
+    /**
+     * Applies the operator of a binary expression to its evaluated operands.
+     */
+    private Environment.PlcObject evaluate(Ast.Expression.Binary ast, Environment.PlcObject left, Environment.PlcObject right) {
         if(Objects.equals(ast.getOperator(), "&&")) {
             if(left.getValue() instanceof Boolean) {
                 if(!(right.getValue() instanceof Boolean)) {
@@ -450,15 +488,7 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     @Override
     public Environment.PlcObject visit(Ast.Expression.Function ast) {
-
-        List<Environment.PlcObject> arguments = new ArrayList<>();
-        scope = new Scope(scope);
-        for(int i = 0; i < ast.getArguments().size() ;i++){
-            arguments.add(visit(ast.getArguments().get(i)));
-        }
-
-        Environment.Function function = scope.lookupFunction(ast.getName(), ast.getArguments().size());
-        return function.invoke(arguments);
+        return expressions.walk(ast);
     }
 
     @Override
@@ -1,10 +1,20 @@
 package plc.project;
 
-import sun.awt.PeerEvent;
-
-import java.nio.file.FileSystemNotFoundException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * The lexer works through three main functions:
@@ -20,10 +30,129 @@ import java.util.List;
  * The {@link #peek(String...)} and {@link #match(String...)} functions are * helpers you need to use, they will make the implementation a lot easier. */
 public final class Lexer {
 
+    /**
+     * Selects how the lexer recognizes characters. {@link #REGEX} is the
+     * original implementation built on {@link #peek(String...)} and {@link
+     * #match(String...)}, which compiles a regex per character; {@link #TABLE}
+     * uses a precomputed character class table and produces exactly the same
+     * tokens and {@link ParseException} indices.
+     */
+    public enum Mode {
+        REGEX,
+        TABLE
+    }
+
+    private static final int LETTER = 1;
+    private static final int DIGIT = 2;
+    private static final int IDENTIFIER = 4;
+    private static final int WHITESPACE = 8;
+    private static final int ESCAPE = 16;
+
+    /**
+     * Character classes for ASCII characters, as bit flags. Anything outside
+     * of ASCII has no class, which matches the regex patterns used below.
+     */
+    private static final byte[] CLASSES = new byte[128];
+
+    static {
+        for (char c = 'A'; c <= 'Z'; c++) {
+            CLASSES[c] |= LETTER | IDENTIFIER;
+            CLASSES[Character.toLowerCase(c)] |= LETTER | IDENTIFIER;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            CLASSES[c] |= DIGIT | IDENTIFIER;
+        }
+        CLASSES['_'] |= IDENTIFIER;
+        CLASSES['-'] |= IDENTIFIER;
+        for (char c : " \b\n\r\t".toCharArray()) {
+            CLASSES[c] |= WHITESPACE;
+        }
+        for (char c : "bnrt'\"\\".toCharArray()) {
+            CLASSES[c] |= ESCAPE;
+        }
+    }
+
     private final CharStream chars;
+    private final Mode mode;
+    private LexerListener listener = null;
+    private boolean started = false;
 
-    public Lexer(String input) {
-        chars = new CharStream(input);
+    /**
+     * The value decoded by the last scan method, or null if the token has no
+     * value or it could not be decoded cheaply (see {@link #decode}).
+     */
+    private Object value;
+    private final StringBuilder text = new StringBuilder();
+
+    public Lexer(CharSequence input) {
+        this(input, Mode.TABLE);
+    }
+
+    public Lexer(CharSequence input, Mode mode) {
+        this(new CharStream(input), mode);
+    }
+
+    /**
+     * Lexes the file at the given path through a read-only memory mapping,
+     * viewing each byte as a character (see {@link AsciiSequence}). Token
+     * indices are byte offsets into the file.
+     */
+    public Lexer(Path path) throws IOException {
+        this(new CharStream(AsciiSequence.map(path)), Mode.TABLE);
+    }
+
+    /**
+     * Lexes characters pulled from the reader as they are needed, keeping only
+     * the current token in memory (see {@link CharStream#CharStream(Reader)}).
+     * Token indices are character offsets from the start of the reader.
+     */
+    public Lexer(Reader reader) {
+        this(new CharStream(reader), Mode.TABLE);
+    }
+
+    private Lexer(CharStream chars, Mode mode) {
+        this.chars = chars;
+        this.mode = mode;
+    }
+
+    /**
+     * Sets a listener which is notified of every token lexed, such as {@link
+     * LexerStats}. When no listener is set (the default) lexing does no extra
+     * work beyond a null check per token.
+     */
+    public void setListener(LexerListener listener) {
+        this.listener = listener;
+        chars.listener = listener;
+    }
+
+    /**
+     * Returns the {@link LineIndex} of the input, which maps token and {@link
+     * ParseException} indices to lines and columns. For a string or mapped
+     * file the table is only built by the first lookup.
+     */
+    public LineIndex getLines() {
+        if (chars.lines == null)
+            chars.lines = new LineIndex(chars.input);
+        return chars.lines;
+    }
+
+    /**
+     * Resets the lexer to lex a new input from the start, keeping its mode,
+     * listener and internal buffers. Together with {@link
+     * #lexBuffer(TokenBuffer)} this lets a long-running service lex many
+     * sources without allocating a new lexer and token arrays for each.
+     */
+    public void reset(CharSequence input) {
+        chars.reset(input);
+        started = false;
+        value = null;
+    }
+
+    private void start() {
+        if (!started) {
+            started = true;
+            listener.started(chars.index);
+        }
     }
 
     /**
@@ -34,17 +163,287 @@ public final class Lexer {
         // empty list of tokens
         List<Token> tokens = new ArrayList<Token>();
         /* while there are things to lex */
+        for (Token token = lexNext(); token != null; token = lexNext()) {
+            tokens.add(token);
+        }
+        return tokens;
+    }
+
+    /**
+     * Lexes the input into a {@link TokenBuffer}, which stores the tokens as
+     * offsets into the input instead of allocating a {@link Token} with a copy
+     * of each literal.
+     */
+    public TokenBuffer lexBuffer() {
+        return lexBuffer(new TokenBuffer(chars.input));
+    }
+
+    /**
+     * Lexes the input into the given buffer, which is cleared first so that
+     * its arrays are reused instead of growing a new buffer from scratch.
+     */
+    public TokenBuffer lexBuffer(TokenBuffer tokens) {
+        if (listener != null)
+            start();
+        tokens.reset(chars.input);
+        while (chars.has(0)) {
+            if (mode == Mode.TABLE ? is(chars.get(0), WHITESPACE) : peek("[ \b\n\r\t]")) {
+                chars.advance();
+                chars.skip();
+            } else if (mode == Mode.TABLE) {
+                scanInto(tokens);
+            } else {
+                Token token = lexToken();
+                tokens.add(token.getType(), token.getKind(), null, token.getIndex(), token.getLiteral().length(), token.getLiteral());
+            }
+        }
+        if (listener != null)
+            listener.finished(chars.index);
+        return tokens;
+    }
+
+    /**
+     * The smallest chunk worth lexing as a separate task in {@link
+     * #lexParallel(ForkJoinPool)}.
+     */
+    private static final int MIN_CHUNK = 1 << 16;
+
+    /**
+     * Lexes the input into a {@link TokenBuffer} using the common fork-join
+     * pool, see {@link #lexParallel(ForkJoinPool)}.
+     */
+    public TokenBuffer lexParallel() {
+        return lexParallel(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Lexes the input into a {@link TokenBuffer} by splitting it into chunks
+     * which are lexed concurrently on the given pool. The result, including
+     * which {@link ParseException} is thrown, is exactly that of {@link
+     * #lexBuffer()}, and so are the events of the listener: it is started
+     * before any chunk is lexed and sees every token up to an error.
+     *
+     * Chunks are split at newlines that are not right after a {@code '}, as
+     * the only token which can contain a newline is a character literal such
+     * as {@code '\n'}. This prescan is only a heuristic: a chunk is kept only
+     * if the previous chunk stopped exactly at its start. Otherwise a token
+     * crossed the boundary and the chunk is lexed again from where the
+     * previous chunk stopped. Each chunk lexes with indices into the whole
+     * input, so no offsets need correcting when they are concatenated.
+     */
+    public TokenBuffer lexParallel(ForkJoinPool pool) {
+        if (chars.input == null)
+            throw new UnsupportedOperationException("Parallel lexing requires random access to the input.");
+        CharSequence input = chars.input;
+        int size = Math.max(MIN_CHUNK, input.length() / (pool.getParallelism() * 4));
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(chars.index);
+        for (int position = chars.index + size; position < input.length(); position += size) {
+            while (position < input.length() && (input.charAt(position - 1) != '\n' || input.charAt(position - 2) == '\''))
+                position++;
+            bounds.add(position);
+        }
+        bounds.add(Math.max(chars.index, input.length()));
+        if (listener != null)
+            start();
+        List<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+        for (int i = 0; i + 1 < bounds.size(); i++) {
+            int start = bounds.get(i), end = bounds.get(i + 1);
+            tasks.add(pool.submit(() -> new Lexer(input, mode).lexChunk(start, end)));
+        }
+        TokenBuffer tokens = new TokenBuffer(input);
+        int position = chars.index;
+        for (int i = 0; i < tasks.size(); i++) {
+            Chunk chunk = tasks.get(i).join();
+            if (chunk.start != position) {
+                chunk = new Lexer(input, mode).lexChunk(position, Math.max(position, bounds.get(i + 1)));
+            }
+            tokens.addAll(chunk.tokens);
+            position = chunk.end;
+            if (chunk.error != null) {
+                chars.seek(position);
+                replay(tokens);
+                throw chunk.error;
+            }
+        }
+        chars.seek(position);
+        replay(tokens);
+        if (listener != null)
+            listener.finished(position);
+        return tokens;
+    }
+
+    /**
+     * Notifies the listener of the tokens lexed in parallel, in order, as
+     * {@link #lexBuffer()} would have while lexing them.
+     */
+    private void replay(TokenBuffer tokens) {
+        if (listener != null) {
+            for (int i = 0; i < tokens.size(); i++) {
+                listener.token(tokens.getType(i), tokens.getIndex(i), tokens.getLength(i));
+            }
+        }
+    }
+
+    /**
+     * Lexes tokens starting before {@code end}, beginning at {@code start}.
+     * The last token may extend past end, in which case the chunk's end is
+     * where it stopped rather than the requested end.
+     */
+    private Chunk lexChunk(int start, int end) {
+        TokenBuffer tokens = new TokenBuffer(chars.input);
+        chars.seek(start);
+        try {
+            while (chars.index < end) {
+                if (mode == Mode.TABLE ? is(chars.get(0), WHITESPACE) : peek("[ \b\n\r\t]")) {
+                    chars.advance();
+                    chars.skip();
+                } else if (mode == Mode.TABLE) {
+                    scanInto(tokens);
+                } else {
+                    Token token = lexToken();
+                    tokens.add(token.getType(), token.getKind(), null, token.getIndex(), token.getLength(), null);
+                }
+            }
+            return new Chunk(start, chars.index, tokens, null);
+        } catch (ParseException e) {
+            return new Chunk(start, chars.index, tokens, e);
+        }
+    }
+
+    private static final class Chunk {
+
+        private final int start;
+        private final int end;
+        private final TokenBuffer tokens;
+        private final ParseException error;
+
+        private Chunk(int start, int end, TokenBuffer tokens, ParseException error) {
+            this.start = start;
+            this.end = end;
+            this.tokens = tokens;
+            this.error = error;
+        }
+
+    }
+
+    /**
+     * Re-lexes the input after an edit which replaced {@code removed}
+     * characters at {@code offset} with {@code inserted} new characters, given
+     * the tokens of the input before the edit. This lexer must be over the
+     * edited input.
+     *
+     * Tokens ending before the edit are unaffected, as the lexer only looks one
+     * character past the end of a token. Lexing restarts after the last of
+     * them and stops as soon as a token starts after the inserted text at the
+     * (shifted) start of a previous token, since the rest of the input is then
+     * identical. The remaining tokens are reused with their indices shifted.
+     */
+    public List<Token> relex(List<Token> previous, int offset, int removed, int inserted) {
+        int delta = inserted - removed;
+        int first = firstAffected(previous, offset);
+        TokenBuffer relexed = new TokenBuffer(chars.input);
+        int resume = resync(previous, first, offset, inserted, delta, relexed);
+        List<Token> tokens = new ArrayList<>(previous.size() + relexed.size() - (resume - first));
+        tokens.addAll(previous.subList(0, first));
+        tokens.addAll(relexed);
+        for (int i = resume; i < previous.size(); i++) {
+            Token token = previous.get(i);
+            tokens.add(new Token(token.getType(), token.getKind(), token.getDecodedValue(), chars.input, token.getIndex() + delta, token.getLength()));
+        }
+        return tokens;
+    }
+
+    /**
+     * Re-lexes the input after an edit as in {@link #relex(List, int, int,
+     * int)}, splicing the result into a new {@link TokenBuffer}. Reused tokens
+     * are shifted with an array copy rather than recreated.
+     */
+    public TokenBuffer relex(TokenBuffer previous, int offset, int removed, int inserted) {
+        int delta = inserted - removed;
+        int first = firstAffected(previous, offset);
+        TokenBuffer relexed = new TokenBuffer(chars.input);
+        int resume = resync(previous, first, offset, inserted, delta, relexed);
+        return TokenBuffer.splice(previous, first, relexed, resume, delta);
+    }
+
+    /**
+     * Returns the index of the first token which ends at or after the offset,
+     * and thus may be affected by an edit there.
+     */
+    private static int firstAffected(List<Token> previous, int offset) {
+        int low = 0, high = previous.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            Token token = previous.get(middle);
+            if (token.getIndex() + token.getLength() < offset)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Lexes from the end of the last unaffected token into {@code relexed}
+     * until the tokens resynchronize with the previous tokens, returning the
+     * index of the first previous token to reuse.
+     */
+    private int resync(List<Token> previous, int first, int offset, int inserted, int delta, TokenBuffer relexed) {
+        if (chars.input == null)
+            throw new UnsupportedOperationException("Re-lexing requires random access to the input.");
+        int restart = 0;
+        if (first > 0) {
+            Token token = previous.get(first - 1);
+            restart = token.getIndex() + token.getLength();
+        }
+        chars.seek(restart);
+        int resume = first;
+        while (chars.has(0)) {
+            if (mode == Mode.TABLE ? is(chars.get(0), WHITESPACE) : peek("[ \b\n\r\t]")) {
+                chars.advance();
+                chars.skip();
+                continue;
+            }
+            int start = chars.index;
+            if (start >= offset + inserted) {
+                while (resume < previous.size() && previous.get(resume).getIndex() + delta < start)
+                    resume++;
+                if (resume < previous.size() && previous.get(resume).getIndex() + delta == start)
+                    return resume;
+            }
+            if (mode == Mode.TABLE) {
+                scanInto(relexed);
+            } else {
+                Token token = lexToken();
+                relexed.add(token.getType(), token.getKind(), null, token.getIndex(), token.getLength(), null);
+            }
+        }
+        return previous.size();
+    }
+
+    /**
+     * Skips any whitespace and lexes the next token using {@link #lexToken()},
+     * returning {@code null} once the input is exhausted. This is what {@link
+     * TokenSource} uses to pull tokens on demand instead of calling {@link
+     * #lex()} up front.
+     */
+    public Token lexNext() {
+        if (listener != null)
+            start();
         while(chars.has(0)) {
             // if white space skip
-            if (match("[ \b\n\r\t]")) {
+            if (mode == Mode.TABLE ? is(chars.get(0), WHITESPACE) : peek("[ \b\n\r\t]")) {
+                chars.advance();
                 chars.skip();
             }
             else {
-                tokens.add(lexToken());
+                return lexToken();
             }
         }
-        return tokens;
-        //throw new UnsupportedOperationException(); //TODO
+        if (listener != null)
+            listener.finished(chars.index);
+        return null;
     }
 
     /**
@@ -56,6 +455,8 @@ public final class Lexer {
      * by {@link #lex()}
      */
     public Token lexToken() {
+        if (mode == Mode.TABLE)
+            return scan();
         // could maybe be a switch statement
         if(peek("(@|[A-Za-z])[A-Za-z0-9_-]*")){
             return lexIdentifier();
@@ -77,9 +478,8 @@ public final class Lexer {
     }
 
     public Token lexIdentifier() {
-        System.out.println("identifier found");
-        if(peek("[A-Za-z]"))            //Checks initial state (no digit, underscore, or hyphen)
-            match("[A-Za-z]");
+        if(peek("@|[A-Za-z]"))          //Checks initial state (no digit, underscore, or hyphen)
+            match("@|[A-Za-z]");
         while(peek("[A-Za-z0-9_-]"))    //Checks the rest of the token, including digits, underscores, and hyphens
             match("[A-Za-z0-9_-]");
         return chars.emit(Token.Type.IDENTIFIER);
@@ -124,7 +524,6 @@ public final class Lexer {
 
 
     public Token lexCharacter() {
-        System.out.println("Character Found");
         if(peek("'")) {
             match("'");
 
@@ -151,7 +550,6 @@ public final class Lexer {
 
     // roberts section
     public Token lexString() {
-        System.out.println("String Found");
         if(peek("\"")) {
             match("\"");
             while (peek("[^\"|\n]")) {
@@ -159,7 +557,7 @@ public final class Lexer {
                  lexEscape();
             }
                 else
-                    match(".");
+                    match("(?s).");
             }
             if (peek("\""))
                 match("\"");
@@ -174,19 +572,15 @@ public final class Lexer {
     }
 
     public void lexEscape() {
-        System.out.println("Escape Found");
         if (peek("[bnrt'\"\\\\]"))
             match("[bnrt'\"\\\\]");
         else {
-            peek(".?");
-            System.out.println(chars.index);
             throw new ParseException("Invalid", chars.index);
         }
         //throw new UnsupportedOperationException(); //TODO
     }
 
     public Token lexOperator() {
-        System.out.println("Found Operator");
         if (peek("[!=]","="))
             match("[!=]","=");
         else if(peek("&","&"))
@@ -194,12 +588,252 @@ public final class Lexer {
         else if (peek("|","|"))
             match("|","|");
         else
-            match(".");
+            match("(?s).");
 
         return chars.emit(Token.Type.OPERATOR);
         //throw new UnsupportedOperationException(); //TODO
     }
 
+    /**
+     * Scans the next token using the character class table, returning its
+     * type and leaving the token as the current match of the char stream. This
+     * is the {@link Mode#TABLE} equivalent of the regex dispatch in {@link
+     * #lexToken()}, and each scan method below mirrors its regex counterpart
+     * state for state, including the index of any {@link ParseException}.
+     */
+    private Token.Type scanToken() {
+        value = null;
+        char c = chars.get(0);
+        if (c == '@' || is(c, LETTER))
+            return scanIdentifier();
+        else if (c == '-' || is(c, DIGIT))
+            return scanNumber();
+        else if (c == '\'')
+            return scanCharacter();
+        else if (c == '"')
+            return scanString();
+        else
+            return scanOperator();
+    }
+
+    private Token scan() {
+        Token.Type type = scanToken();
+        return chars.emit(type, value);
+    }
+
+    private void scanInto(TokenBuffer tokens) {
+        Token.Type type = scanToken();
+        chars.emit(type, value, tokens);
+    }
+
+    /**
+     * Decodes the value of a literal token which was not decoded while it was
+     * lexed, which happens for tokens created directly or lexed in {@link
+     * Mode#REGEX} and for numbers too large for a {@code long}. Integers are
+     * {@link BigInteger}s, decimals {@link BigDecimal}s, characters {@link
+     * Character}s and strings the unescaped {@link String}.
+     */
+    static Object decode(Token.Type type, String literal) {
+        switch (type) {
+            case INTEGER:
+                return new BigInteger(literal);
+            case DECIMAL:
+                return new BigDecimal(literal);
+            case CHARACTER:
+            case STRING:
+                Lexer lexer = new Lexer(literal);
+                lexer.scanToken();
+                return lexer.value;
+            default:
+                return null;
+        }
+    }
+
+    private static char unescape(char c) {
+        switch (c) {
+            case 'b': return '\b';
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 't': return '\t';
+            default: return c;
+        }
+    }
+
+    private Token.Type scanIdentifier() {
+        chars.advance();
+        while (chars.has(0) && is(chars.get(0), IDENTIFIER))
+            chars.advance();
+        return Token.Type.IDENTIFIER;
+    }
+
+    private static final int NUMBER_SIGN = 0;
+    private static final int NUMBER_INTEGER = 1;
+    private static final int NUMBER_POINT = 2;
+    private static final int NUMBER_FRACTION = 3;
+    private static final int NUMBER_LEADING_FRACTION = 4;
+
+    /**
+     * The most digits which always fit in a {@code long}.
+     */
+    private static final int LONG_DIGITS = 18;
+
+    /**
+     * Scans a number with an explicit state machine. The states and the
+     * exceptions thrown match {@link #lexNumber()}, which notably accepts a
+     * decimal with no digits after a leading point (such as {@code -.}).
+     *
+     * The digits are accumulated into a {@code long} while scanning, and the
+     * value is only left to {@link #decode} if there are too many of them (or
+     * none at all, which is not a valid number).
+     */
+    private Token.Type scanNumber() {
+        int state = NUMBER_SIGN;
+        boolean negative = chars.get(0) == '-';
+        long unscaled = 0;
+        int digits = 0;
+        int scale = 0;
+        if (negative)
+            chars.advance();
+        while (true) {
+            boolean has = chars.has(0);
+            char c = has ? chars.get(0) : 0;
+            switch (state) {
+                case NUMBER_SIGN:
+                    if (has && c == '.') {
+                        chars.advance();
+                        state = NUMBER_LEADING_FRACTION;
+                    } else if (has && is(c, DIGIT)) {
+                        chars.advance();
+                        unscaled = c - '0';
+                        digits++;
+                        state = NUMBER_INTEGER;
+                    } else {
+                        throw new ParseException("Invalid Number", chars.index);
+                    }
+                    break;
+                case NUMBER_INTEGER:
+                    if (has && is(c, DIGIT)) {
+                        chars.advance();
+                        unscaled = unscaled * 10 + (c - '0');
+                        digits++;
+                    } else if (has && c == '.') {
+                        chars.advance();
+                        state = NUMBER_POINT;
+                    } else {
+                        if (digits <= LONG_DIGITS)
+                            value = BigInteger.valueOf(negative ? -unscaled : unscaled);
+                        return Token.Type.INTEGER;
+                    }
+                    break;
+                case NUMBER_POINT:
+                    if (has && is(c, DIGIT)) {
+                        chars.advance();
+                        unscaled = unscaled * 10 + (c - '0');
+                        digits++;
+                        scale++;
+                        state = NUMBER_FRACTION;
+                    } else {
+                        throw new ParseException("Invalid: Trailing decimal", chars.index);
+                    }
+                    break;
+                case NUMBER_FRACTION:
+                case NUMBER_LEADING_FRACTION:
+                    if (has && is(c, DIGIT)) {
+                        chars.advance();
+                        unscaled = unscaled * 10 + (c - '0');
+                        digits++;
+                        scale++;
+                    } else {
+                        if (digits > 0 && digits <= LONG_DIGITS)
+                            value = BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+                        return Token.Type.DECIMAL;
+                    }
+                    break;
+                default:
+                    throw new AssertionError("Invalid number state: " + state);
+            }
+        }
+    }
+
+    /**
+     * Scans a character literal. As in {@link #lexCharacter()}, an escape may
+     * follow a plain character (such as {@code 'a\t'}), in which case the
+     * value is the plain character.
+     */
+    private Token.Type scanCharacter() {
+        chars.advance();
+        if (chars.has(0) && chars.get(0) == '\'')
+            throw new ParseException("Empty Char", chars.index);
+        Character character = null;
+        if (chars.has(0) && chars.get(0) != '\\') {
+            character = chars.get(0);
+            chars.advance();
+        }
+        if (chars.has(0) && chars.get(0) == '\\') {
+            chars.advance();
+            if (chars.has(0) && is(chars.get(0), ESCAPE)) {
+                if (character == null)
+                    character = unescape(chars.get(0));
+                chars.advance();
+            }
+        }
+        if (chars.has(0) && chars.get(0) == '\'') {
+            chars.advance();
+            value = character;
+            return Token.Type.CHARACTER;
+        }
+        throw new ParseException("Missing Single Quote", chars.index);
+    }
+
+    /**
+     * Scans a string literal, unescaping its value into {@link #text} in the
+     * same pass.
+     */
+    private Token.Type scanString() {
+        chars.advance();
+        text.setLength(0);
+        while (chars.has(0)) {
+            char c = chars.get(0);
+            if (c == '"' || c == '|' || c == '\n')
+                break;
+            chars.advance();
+            if (c == '\\') {
+                if (!chars.has(0) || !is(chars.get(0), ESCAPE))
+                    throw new ParseException("Invalid", chars.index);
+                c = unescape(chars.get(0));
+                chars.advance();
+            }
+            text.append(c);
+        }
+        if (chars.has(0) && chars.get(0) == '"') {
+            chars.advance();
+            value = text.toString();
+            return Token.Type.STRING;
+        }
+        throw new ParseException("Invalid Missing End Quotes", chars.index);
+    }
+
+    /**
+     * Scans an operator. Note that {@link #lexOperator()} never combines
+     * {@code ||}, since {@code "|"} as a regex only matches the empty string,
+     * so it is lexed as two separate operators here as well.
+     */
+    private Token.Type scanOperator() {
+        char c = chars.get(0);
+        chars.advance();
+        if (chars.has(0)) {
+            char next = chars.get(0);
+            if ((c == '!' || c == '=') && next == '='
+                    || c == '&' && next == '&')
+                chars.advance();
+        }
+        return Token.Type.OPERATOR;
+    }
+
+    private static boolean is(char c, int cls) {
+        return c < 128 && (CLASSES[c] & cls) != 0;
+    }
+
     /**
      * Returns true if the next sequence of characters match the given patterns,
      * which should be a regex. For example, {@code peek("a", "b", "c")} would
@@ -240,26 +874,67 @@ public final class Lexer {
      * A helper class maintaining the input string, current index of the char
      * stream, and the current length of the token being matched.
      *
+     * The input is any {@link CharSequence}, such as a {@link String} or an
+     * {@link AsciiSequence} over a memory mapped file. Alternatively, the
+     * characters can be pulled from a {@link Reader} into a window which only
+     * holds the token currently being matched, so the input never has to be
+     * fully in memory.
+     *
      * You should rely on peek/match for state management in nearly all cases.
      * The only field you need to access is {@link #index} for any {@link
      * ParseException} which is thrown.
      */
     public static final class CharStream {
 
-        private final String input;
+        private CharSequence input;
+        private Reader reader;
+        private char[] window;
+        private int windowStart = 0;
+        private int windowEnd = 0;
         private int index = 0;
         private int length = 0;
+        private LexerListener listener = null;
+        private LineIndex lines;
+
+        public CharStream(CharSequence input) {
+            this.input = input;
+            this.reader = null;
+        }
+
+        public CharStream(Reader reader) {
+            this.input = null;
+            this.reader = reader;
+            this.window = new char[8192];
+            this.lines = new LineIndex();
+        }
 
-        public CharStream(String input) {
+        /**
+         * Restarts the stream over a new input, as in {@link
+         * Lexer#reset(CharSequence)}.
+         */
+        public void reset(CharSequence input) {
             this.input = input;
+            this.reader = null;
+            this.window = null;
+            this.windowStart = 0;
+            this.windowEnd = 0;
+            this.index = 0;
+            this.length = 0;
+            this.lines = null;
         }
 
         public boolean has(int offset) {
-            return index + offset < input.length();
+            if (reader == null)
+                return index + offset < input.length();
+            return index + offset < windowEnd || fill(index + offset);
         }
 
         public char get(int offset) {
-            return input.charAt(index + offset);
+            if (reader == null)
+                return input.charAt(index + offset);
+            if (index + offset >= windowEnd && !fill(index + offset))
+                throw new IndexOutOfBoundsException("Index " + (index + offset) + " is past the end of the reader.");
+            return window[index + offset - windowStart];
         }
 
         public void advance() {
@@ -271,12 +946,140 @@ public final class Lexer {
             length = 0;
         }
 
+        /**
+         * Moves the stream to the given index, discarding the current match.
+         * This requires random access to the input, so it is not supported
+         * when reading from a {@link Reader}.
+         */
+        public void seek(int index) {
+            if (reader != null)
+                throw new UnsupportedOperationException("Cannot seek in a reader.");
+            this.index = index;
+            this.length = 0;
+        }
+
         public Token emit(Token.Type type) {
+            return emit(type, null);
+        }
+
+        /**
+         * Emits the current match with the value decoded by the lexer, which
+         * may be null to decode it from the literal when it is needed.
+         */
+        public Token emit(Token.Type type, Object value) {
             int start = index - length;
             skip();
-            return new Token(type, input.substring(start, index), start);
+            if (listener != null)
+                listener.token(type, start, index - start);
+            if (reader != null) {
+                String literal = literal(start, index);
+                return new Token(type, Token.Kind.of(type, literal, 0, literal.length()), value, literal, start);
+            }
+            return new Token(type, Token.Kind.of(type, input, start, index - start), value, input, start, index - start);
+        }
+
+        /**
+         * Emits the current match into a {@link TokenBuffer}. The literal is
+         * only copied if there is no shared input to refer back to.
+         */
+        public void emit(Token.Type type, Object value, TokenBuffer tokens) {
+            int start = index - length;
+            skip();
+            if (listener != null)
+                listener.token(type, start, index - start);
+            if (reader != null) {
+                String literal = literal(start, index);
+                tokens.add(type, Token.Kind.of(type, literal, 0, literal.length()), value, start, literal.length(), literal);
+            } else {
+                tokens.add(type, Token.Kind.of(type, input, start, index - start), value, start, index - start, null);
+            }
+        }
+
+        private String literal(int start, int end) {
+            if (reader != null)
+                return new String(window, start - windowStart, end - start);
+            else if (input instanceof String)
+                return ((String) input).substring(start, end);
+            return input.subSequence(start, end).toString();
+        }
+
+        /**
+         * Reads from the reader until the character at {@code position} is
+         * available, returning false if the reader ends first. Characters
+         * before the start of the current token are discarded to make room.
+         */
+        private boolean fill(int position) {
+            try {
+                while (position >= windowEnd) {
+                    int start = index - length;
+                    if (start > windowStart) {
+                        System.arraycopy(window, start - windowStart, window, 0, windowEnd - start);
+                        windowStart = start;
+                    }
+                    if (windowEnd - windowStart == window.length) {
+                        window = Arrays.copyOf(window, window.length * 2);
+                    }
+                    int read = reader.read(window, windowEnd - windowStart, window.length - (windowEnd - windowStart));
+                    if (read < 0)
+                        return false;
+                    lines.append(window, windowEnd - windowStart, read, windowEnd);
+                    windowEnd += read;
+                }
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+    }
+
+    /**
+     * A {@link CharSequence} view of a byte buffer which treats each byte as a
+     * single character (ISO-8859-1), so ASCII sources can be lexed straight
+     * from a memory mapped file without decoding them into a {@link String}.
+     * Indices are byte offsets, and non-ASCII bytes appear as individual
+     * characters.
+     */
+    public static final class AsciiSequence implements CharSequence {
+
+        private final ByteBuffer bytes;
+
+        public AsciiSequence(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * Maps the file at the given path read-only. The mapping stays valid
+         * after the channel is closed, and is released once it is unreachable.
+         */
+        public static AsciiSequence map(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return new AsciiSequence(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+        }
+
+        @Override
+        public int length() {
+            return bytes.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes.get(index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new AsciiSequence(bytes.slice(start, end - start));
+        }
+
+        @Override
+        public String toString() {
+            byte[] array = new byte[bytes.limit()];
+            bytes.get(0, array);
+            return new String(array, StandardCharsets.ISO_8859_1);
         }
 
     }
 
-}
\ No newline at end of file
+}
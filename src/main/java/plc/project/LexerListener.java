@@ -0,0 +1,27 @@
+package plc.project;
+
+/**
+ * Receives events from a {@link Lexer} for tracing and statistics, set with
+ * {@link Lexer#setListener(LexerListener)}. This replaces printing to stdout
+ * from the lexer, which synchronized on every token.
+ */
+public interface LexerListener {
+
+    /**
+     * Called before the first token is lexed, with the index lexing starts at.
+     */
+    default void started(int index) {}
+
+    /**
+     * Called for every token lexed, with the index and length of its literal
+     * in the input.
+     */
+    void token(Token.Type type, int index, int length);
+
+    /**
+     * Called once the input is exhausted, with the index of the end of the
+     * input (the number of characters, or bytes for a mapped file, consumed).
+     */
+    default void finished(int index) {}
+
+}
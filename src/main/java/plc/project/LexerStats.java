@@ -0,0 +1,61 @@
+package plc.project;
+
+import java.util.Arrays;
+
+/**
+ * A {@link LexerListener} which counts tokens per type, the characters (or
+ * bytes, for a mapped file) consumed and the time spent lexing.
+ */
+public final class LexerStats implements LexerListener {
+
+    private final long[] tokens = new long[Token.Type.values().length];
+    private long consumed = 0;
+    private long nanos = 0;
+    private long startIndex = 0;
+    private long startTime = 0;
+
+    @Override
+    public void started(int index) {
+        startIndex = index;
+        startTime = System.nanoTime();
+    }
+
+    @Override
+    public void token(Token.Type type, int index, int length) {
+        tokens[type.ordinal()]++;
+    }
+
+    @Override
+    public void finished(int index) {
+        consumed += index - startIndex;
+        nanos += System.nanoTime() - startTime;
+    }
+
+    public long getTokens(Token.Type type) {
+        return tokens[type.ordinal()];
+    }
+
+    public long getTokens() {
+        return Arrays.stream(tokens).sum();
+    }
+
+    public long getConsumed() {
+        return consumed;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("LexerStats{");
+        for (Token.Type type : Token.Type.values()) {
+            builder.append(type).append('=').append(tokens[type.ordinal()]).append(", ");
+        }
+        return builder.append("consumed=").append(consumed)
+                .append(", nanos=").append(nanos)
+                .append('}').toString();
+    }
+
+}
@@ -0,0 +1,147 @@
+package plc.project;
+
+import java.util.Arrays;
+
+/**
+ * Maps character offsets in a source, such as {@link ParseException#getIndex()}
+ * or {@link Token#getIndex()}, to 1-based lines and columns. Lines are ended by
+ * {@code '\n'}, so a {@code '\r'} before it is the last column of its line.
+ *
+ * The table of line starts is only built by the first lookup, so an index which
+ * is never used costs nothing. Each lookup is then a binary search over the
+ * table, and a single index can be shared by every consumer of the source.
+ *
+ * An index for a {@link java.io.Reader} has no source to scan, so the {@link
+ * Lexer} instead records line starts as it reads each block. Lookups then
+ * cover what has been read so far.
+ */
+public final class LineIndex {
+
+    private final CharSequence source;
+    private volatile int[] starts;
+    private int lines;
+
+    public LineIndex(CharSequence source) {
+        this.source = source;
+    }
+
+    /**
+     * Creates an index which is filled by {@link #append}.
+     */
+    LineIndex() {
+        this.source = null;
+        this.starts = new int[64];
+        this.lines = 1;
+    }
+
+    /**
+     * Records the line starts in {@code chars[offset, offset + length)}, which
+     * are at {@code position} in the source.
+     */
+    void append(char[] chars, int offset, int length, int position) {
+        int[] starts = this.starts;
+        for (int i = 0; i < length; i++) {
+            if (chars[offset + i] == '\n') {
+                if (lines == starts.length) {
+                    starts = Arrays.copyOf(starts, lines * 2);
+                }
+                starts[lines++] = position + i + 1;
+            }
+        }
+        this.starts = starts;
+    }
+
+    /**
+     * Returns the line (starting at 1) of the given offset. The offset may be
+     * the length of the source, which is where errors at the end of the input
+     * are reported.
+     */
+    public int getLine(int offset) {
+        if (offset < 0) {
+            throw new IndexOutOfBoundsException("Negative offset " + offset + ".");
+        }
+        int[] starts = starts();
+        int low = 0;
+        int high = lines - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (starts[middle] <= offset) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low + 1;
+    }
+
+    /**
+     * Returns the column (starting at 1) of the given offset within its line.
+     */
+    public int getColumn(int offset) {
+        return offset - getLineStart(getLine(offset)) + 1;
+    }
+
+    /**
+     * Returns the offset of the first character of the given line.
+     */
+    public int getLineStart(int line) {
+        int[] starts = starts();
+        if (line < 1 || line > lines) {
+            throw new IndexOutOfBoundsException("Line " + line + " out of bounds for " + lines + " lines.");
+        }
+        return starts[line - 1];
+    }
+
+    public int getLineCount() {
+        starts();
+        return lines;
+    }
+
+    /**
+     * Formats the offset as {@code line:column}, as used in diagnostics.
+     */
+    public String format(int offset) {
+        int line = getLine(offset);
+        return line + ":" + (offset - getLineStart(line) + 1);
+    }
+
+    private int[] starts() {
+        int[] starts = this.starts;
+        if (starts == null) {
+            synchronized (this) {
+                starts = this.starts;
+                if (starts == null) {
+                    starts = build();
+                }
+            }
+        }
+        return starts;
+    }
+
+    private int[] build() {
+        int[] starts = new int[64];
+        int lines = 1;
+        if (source instanceof String) {
+            String string = (String) source;
+            for (int i = string.indexOf('\n'); i >= 0; i = string.indexOf('\n', i + 1)) {
+                if (lines == starts.length) {
+                    starts = Arrays.copyOf(starts, lines * 2);
+                }
+                starts[lines++] = i + 1;
+            }
+        } else {
+            for (int i = 0; i < source.length(); i++) {
+                if (source.charAt(i) == '\n') {
+                    if (lines == starts.length) {
+                        starts = Arrays.copyOf(starts, lines * 2);
+                    }
+                    starts[lines++] = i + 1;
+                }
+            }
+        }
+        this.lines = lines;
+        this.starts = starts;
+        return starts;
+    }
+
+}
@@ -5,9 +5,9 @@ import java.rmi.UnexpectedException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.math.BigDecimal;
-import java.math.BigInteger;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * The parser takes the sequence of tokens emitted by the lexer and turns that
@@ -15,8 +15,9 @@ import java.util.Optional;
  * Tree (AST).
  *
  * The parser has a similar architecture to the lexer, just with {@link Token}s
- * instead of characters. As before, {@link #peek(Object...)} and {@link
- * #match(Object...)} are helpers to make the implementation easier.
+ * instead of characters. As before, {@link #peek(Token.Kind)} and {@link
+ * #match(Token.Kind)}, with their overloads for {@link Token.Type}, are
+ * helpers to make the implementation easier.
  *
  * This type of parser is called <em>recursive descent</em>. Each rule in our
  * grammar will have its own function, and reference to other rules correspond
@@ -24,10 +25,143 @@ import java.util.Optional;
  */
 public final class Parser {
 
-    private final TokenStream tokens;
+    /**
+     * Selects how binary expressions are parsed. {@link #DESCENT} is the
+     * original cascade of one method per precedence level, from {@link
+     * #parseLogicalExpression()} down to {@link
+     * #parseMultiplicativeExpression()}; {@link #PRATT} climbs a precedence
+     * table instead and builds exactly the same trees. It also uses explicit
+     * stacks rather than recursion, for groups and arguments too, so deeply
+     * nested expressions cannot overflow the Java stack.
+     */
+    public enum Mode {
+        DESCENT,
+        PRATT
+    }
+
+    private static final int LOGICAL = 1;
+    private static final int COMPARISON = 2;
+    private static final int ADDITIVE = 3;
+    private static final int MULTIPLICATIVE = 4;
+
+    /**
+     * Precedence of each binary operator, indexed by {@link Token.Kind}
+     * ordinal. Zero means the kind is not a binary operator, which ends an
+     * expression.
+     */
+    private static final int[] PRECEDENCE = new int[Token.Kind.values().length];
+
+    static {
+        for (Token.Kind kind : new Token.Kind[] {Token.Kind.AND, Token.Kind.OR}) {
+            PRECEDENCE[kind.ordinal()] = LOGICAL;
+        }
+        for (Token.Kind kind : new Token.Kind[] {Token.Kind.LESS, Token.Kind.GREATER, Token.Kind.EQUAL_EQUAL, Token.Kind.NOT_EQUAL}) {
+            PRECEDENCE[kind.ordinal()] = COMPARISON;
+        }
+        for (Token.Kind kind : new Token.Kind[] {Token.Kind.PLUS, Token.Kind.MINUS}) {
+            PRECEDENCE[kind.ordinal()] = ADDITIVE;
+        }
+        for (Token.Kind kind : new Token.Kind[] {Token.Kind.STAR, Token.Kind.SLASH, Token.Kind.CARET}) {
+            PRECEDENCE[kind.ordinal()] = MULTIPLICATIVE;
+        }
+    }
+
+    private TokenStream tokens;
+    private Mode mode = Mode.PRATT;
+    private boolean lazy = false;
+
+    /**
+     * The operand and operator stacks of {@link #parseBinaryExpression()},
+     * reused by every expression.
+     */
+    private Ast.Expression[] operands = new Ast.Expression[16];
+    private Token.Kind[] operators = new Token.Kind[16];
+    private int operandCount;
+    private int operatorCount;
 
     public Parser(List<Token> tokens) {
-        this.tokens = new TokenStream(tokens);
+        this.tokens = new ListTokenStream(tokens);
+    }
+
+    /**
+     * Creates a parser which pulls tokens on demand from the given source, so
+     * only the source's lookahead window is held in memory while parsing.
+     */
+    public Parser(TokenSource tokens) {
+        this.tokens = new SourceTokenStream(tokens);
+    }
+
+    /**
+     * Creates a parser over a {@link TokenBuffer}, which is matched against
+     * directly without allocating a {@link Token} for each comparison.
+     */
+    public Parser(TokenBuffer tokens) {
+        this.tokens = new BufferTokenStream(tokens);
+    }
+
+    private Parser(TokenStream tokens, Mode mode, boolean lazy) {
+        this.tokens = tokens;
+        this.mode = mode;
+        this.lazy = lazy;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * When lazy, {@link #parseFunction()} only parses the signature and finds
+     * the {@code END} of the body by its nesting, and the statements are then
+     * parsed by the first call to {@link Ast.Function#getStatements()}. The
+     * cost of parsing is then proportional to the functions actually used,
+     * such as those called while interpreting or those visited by an {@link
+     * Analyzer} with {@link Analyzer#setReachableOnly(boolean)}.
+     *
+     * A syntax error in a body is therefore only thrown when its statements
+     * are first used, and the tokens must not be reset or reused while any
+     * body is unparsed. A parser over a {@link TokenSource} has already
+     * discarded the body's tokens, so it always parses eagerly.
+     */
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    /**
+     * Resets the parser to parse a new list of tokens, reusing its token
+     * stream. This and the other reset methods let a long-running service
+     * keep one parser per thread, so the allocations per compilation are
+     * essentially the AST itself.
+     */
+    public void reset(List<Token> tokens) {
+        if (this.tokens instanceof ListTokenStream) {
+            ((ListTokenStream) this.tokens).reset(tokens);
+        } else {
+            this.tokens = new ListTokenStream(tokens);
+        }
+    }
+
+    /**
+     * Resets the parser to pull tokens from the given source, which should
+     * itself have been {@link TokenSource#reset() reset} if it is reused.
+     */
+    public void reset(TokenSource tokens) {
+        if (this.tokens instanceof SourceTokenStream) {
+            ((SourceTokenStream) this.tokens).source = tokens;
+        } else {
+            this.tokens = new SourceTokenStream(tokens);
+        }
+    }
+
+    /**
+     * Resets the parser to parse a new {@link TokenBuffer}, which may be the
+     * same buffer refilled by {@link Lexer#lexBuffer(TokenBuffer)}.
+     */
+    public void reset(TokenBuffer tokens) {
+        if (this.tokens instanceof BufferTokenStream) {
+            ((BufferTokenStream) this.tokens).reset(tokens);
+        } else {
+            this.tokens = new BufferTokenStream(tokens);
+        }
     }
 
     /**
@@ -36,21 +170,197 @@ public final class Parser {
     public Ast.Source parseSource() throws ParseException{
             List<Ast.Global> global = new ArrayList<>();
             List<Ast.Function> function = new ArrayList<>();
+            parseItems(global, function);
+            return new Ast.Source(global, function);
+    }
 
+    /**
+     * Parses the remaining globals and functions of the {@code source} rule.
+     */
+    private void parseItems(List<Ast.Global> global, List<Ast.Function> function) throws ParseException {
             while (tokens.has(0))
             {
-                if (peek("LIST") || peek("VAR") || peek("VAL"))
-                {
-                    Ast.Global globalToken = parseGlobal();
-                    global.add(globalToken);
+                Ast item = parseItem();
+                if (item instanceof Ast.Global)
+                    global.add((Ast.Global) item);
+                else
+                    function.add((Ast.Function) item);
+            }
+    }
+
+    /**
+     * Parses a single global or function of the {@code source} rule.
+     */
+    Ast parseItem() throws ParseException {
+        // FIRST(global) = {LIST, VAR, VAL}, FIRST(function) = {FUN}
+        switch (tokens.getKind(0)) {
+            case LIST:
+            case VAR:
+            case VAL:
+                return parseGlobal();
+            case FUN:
+                return parseFunction();
+            default:
+                throw new ParseException("Expected LIST, VAR, VAL or FUN", tokens.getIndex(0));
+        }
+    }
+
+    /**
+     * Gets the position of the next token, see {@link TokenStream#position()}.
+     */
+    int position() {
+        return tokens.position();
+    }
+
+    /**
+     * Moves to the token at the given position, see {@link
+     * TokenStream#seek(int)}.
+     */
+    void seek(int position) {
+        tokens.seek(position);
+    }
+
+    /**
+     * The fewest tokens worth parsing as a separate task in {@link
+     * #parseSourceParallel(ForkJoinPool)}.
+     */
+    private static final int MIN_CHUNK = 1 << 12;
+
+    /**
+     * Parses the {@code source} rule using the common fork-join pool, see
+     * {@link #parseSourceParallel(ForkJoinPool)}.
+     */
+    public Ast.Source parseSourceParallel() throws ParseException {
+        return parseSourceParallel(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Parses the {@code source} rule by splitting the globals and functions
+     * into chunks which are parsed concurrently on the given pool, then
+     * assembled in source order. The result, including which {@link
+     * ParseException} is thrown, is exactly that of {@link #parseSource()}.
+     *
+     * A prescan finds where each item starts by tracking the nesting of
+     * {@code DO}/{@code SWITCH} and {@code END}. As in {@link
+     * Lexer#lexParallel(ForkJoinPool)} this is only a heuristic: an item is
+     * kept only if parsing it stopped exactly at the start of the next one.
+     * From the first item which fails or disagrees with the prescan, the rest
+     * of the source is parsed sequentially, so the earliest failure wins.
+     *
+     * This requires random access to the tokens, so a parser over a {@link
+     * TokenSource} parses sequentially instead.
+     */
+    public Ast.Source parseSourceParallel(ForkJoinPool pool) throws ParseException {
+        if (!tokens.isRandomAccess())
+            return parseSource();
+        int[] starts = prescan();
+        int items = starts.length - 1;
+        int size = Math.max(MIN_CHUNK, (starts[items] - starts[0]) / (pool.getParallelism() * 4));
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(0);
+        for (int i = 1; i < items; i++) {
+            if (starts[i] - starts[bounds.get(bounds.size() - 1)] >= size)
+                bounds.add(i);
+        }
+        bounds.add(items);
+        List<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+        for (int i = 0; i + 1 < bounds.size(); i++) {
+            int first = bounds.get(i), last = bounds.get(i + 1);
+            TokenStream stream = tokens.fork(starts[first]);
+            tasks.add(pool.submit(() -> new Parser(stream, mode, lazy).parseChunk(starts, first, last)));
+        }
+        List<Ast.Global> global = new ArrayList<>();
+        List<Ast.Function> function = new ArrayList<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            Chunk chunk = tasks.get(i).join();
+            global.addAll(chunk.global);
+            function.addAll(chunk.function);
+            if (chunk.parsed < bounds.get(i + 1)) {
+                for (int j = i + 1; j < tasks.size(); j++) {
+                    tasks.get(j).cancel(false);
                 }
-                else if (peek("FUN"))
-                {
-                    Ast.Function functionToken = parseFunction();
-                    function.add(functionToken);
+                tokens.seek(starts[chunk.parsed]);
+                parseItems(global, function);
+                return new Ast.Source(global, function);
+            }
+        }
+        tokens.seek(starts[items]);
+        return new Ast.Source(global, function);
+    }
+
+    /**
+     * Returns the positions at which the prescan expects each top-level item
+     * to start, followed by the position of the end of the tokens.
+     */
+    private int[] prescan() {
+        int[] starts = new int[16];
+        int count = 0;
+        int depth = 0;
+        int offset = 0;
+        for (; tokens.has(offset); offset++) {
+            Token.Kind kind = tokens.getKind(offset);
+            if (depth == 0 && (kind == Token.Kind.LIST || kind == Token.Kind.VAR
+                    || kind == Token.Kind.VAL || kind == Token.Kind.FUN || offset == 0)) {
+                if (count + 1 == starts.length)
+                    starts = Arrays.copyOf(starts, starts.length * 2);
+                starts[count++] = tokens.position() + offset;
+            }
+            if (kind == Token.Kind.DO || kind == Token.Kind.SWITCH)
+                depth++;
+            else if (kind == Token.Kind.END && depth > 0)
+                depth--;
+        }
+        starts[count++] = tokens.position() + offset;
+        return Arrays.copyOf(starts, count);
+    }
+
+    /**
+     * Parses the items {@code [first, last)} starting at the given positions,
+     * stopping at the first which throws or does not end where the next item
+     * starts.
+     */
+    private Chunk parseChunk(int[] starts, int first, int last) {
+        List<Ast.Global> global = new ArrayList<>();
+        List<Ast.Function> function = new ArrayList<>();
+        for (int i = first; i < last; i++) {
+            Ast item;
+            try {
+                switch (tokens.getKind(0)) {
+                    case LIST:
+                    case VAR:
+                    case VAL:
+                        item = parseGlobal();
+                        break;
+                    case FUN:
+                        item = parseFunction();
+                        break;
+                    default:
+                        return new Chunk(global, function, i);
                 }
+            } catch (RuntimeException e) {
+                return new Chunk(global, function, i);
             }
-            return new Ast.Source(global, function);
+            if (tokens.position() != starts[i + 1])
+                return new Chunk(global, function, i);
+            if (item instanceof Ast.Global)
+                global.add((Ast.Global) item);
+            else
+                function.add((Ast.Function) item);
+        }
+        return new Chunk(global, function, last);
+    }
+
+    private static final class Chunk {
+
+        private final List<Ast.Global> global;
+        private final List<Ast.Function> function;
+        private final int parsed;
+
+        private Chunk(List<Ast.Global> global, List<Ast.Function> function, int parsed) {
+            this.global = global;
+            this.function = function;
+            this.parsed = parsed;
+        }
 
     }
 
@@ -60,22 +370,22 @@ public final class Parser {
      */
     public Ast.Global parseGlobal() throws ParseException {
         Ast.Global global;
-        if (match("LIST")) {
+        if (match(Token.Kind.LIST)) {
             global = parseList();
-            if(match(";"))
+            if(match(Token.Kind.SEMICOLON))
                 return global;
         }
-        else if (match("VAR")) {
+        else if (match(Token.Kind.VAR)) {
             global = parseMutable();
-            if(match(";"))
+            if(match(Token.Kind.SEMICOLON))
                 return global;
         }
-        else if (match("VAL")) {
+        else if (match(Token.Kind.VAL)) {
             global = parseImmutable();
-            if(match(";"))
+            if(match(Token.Kind.SEMICOLON))
                 return global;
         }
-        throw new ParseException("No semicolon: ", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
+        throw new ParseException("No semicolon: ", tokens.getIndex(-1) + tokens.getLength(-1));
     }
 
     /**
@@ -86,32 +396,34 @@ public final class Parser {
         //TODO, in progress
         //list ::= 'LIST' identifier         ':' identifier         '=' '[' expression (',' expression)* ']'
 
-        match("LIST");
+        match(Token.Kind.LIST);
         if(!match(Token.Type.IDENTIFIER))
-            throw new ParseException("Expected Identifier", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length() + 1);
-        String name = tokens.get(-1).getLiteral();
+            throw new ParseException("Expected Identifier", tokens.getIndex(-1) + tokens.getLength(-1) + 1);
+        String name = tokens.getLiteral(-1);
 
-        if(!match(":"))
-            throw new ParseException("Expected ':'", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length() + 1);
+        if(!match(Token.Kind.COLON))
+            throw new ParseException("Expected ':'", tokens.getIndex(-1) + tokens.getLength(-1) + 1);
         else if(!match(Token.Type.IDENTIFIER))
-            throw new ParseException("Expected Identifier", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length() + 1);
+            throw new ParseException("Expected Identifier", tokens.getIndex(-1) + tokens.getLength(-1) + 1);
 
-        if(!match("="))
-            throw new ParseException("Expected '='", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length() + 1);
-        else if(!match("["))
-            throw new ParseException("Expected '['", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length() + 1);
+        if(!match(Token.Kind.EQUALS))
+            throw new ParseException("Expected '='", tokens.getIndex(-1) + tokens.getLength(-1) + 1);
+        else if(!match(Token.Kind.LEFT_BRACKET))
+            throw new ParseException("Expected '['", tokens.getIndex(-1) + tokens.getLength(-1) + 1);
 
         List<Ast.Expression> expr = new ArrayList<Ast.Expression>();
         expr.add(parseExpression());
 
-        while(!peek("]")) {
-            if(match(",")) {
-                if(peek("]"))
-                    throw new ParseException("Trailing comma", tokens.get(-1).getIndex());
+        while(!peek(Token.Kind.RIGHT_BRACKET)) {
+            if(match(Token.Kind.COMMA)) {
+                if(peek(Token.Kind.RIGHT_BRACKET))
+                    throw new ParseException("Trailing comma", tokens.getIndex(-1));
                 expr.add(parseExpression());
             }
+            else
+                throw new ParseException("Expected ',' or ']'", tokens.getIndex(-1) + tokens.getLength(-1));
         }
-        match("]");
+        match(Token.Kind.RIGHT_BRACKET);
         return new Ast.Global(name,false, Optional.of(new Ast.Expression.PlcList(expr)));
     }
 
@@ -124,20 +436,20 @@ public final class Parser {
         //mutable ::= 'VAR'  identifier           ':' identifier        ('=' expression)?
 
         String typeName = null;
-        match("VAR");
+        match(Token.Kind.VAR);
 
         if(!match(Token.Type.IDENTIFIER))
-            throw new ParseException("MISSING IDENTIFIER", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length() + 1);
-        String name = tokens.get(-1).getLiteral();
+            throw new ParseException("MISSING IDENTIFIER", tokens.getIndex(-1) + tokens.getLength(-1) + 1);
+        String name = tokens.getLiteral(-1);
 
-        if (!match(":"))
-            throw new ParseException("Expected colon", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
+        if (!match(Token.Kind.COLON))
+            throw new ParseException("Expected colon", tokens.getIndex(-1) + tokens.getLength(-1));
         else if (!match(Token.Type.IDENTIFIER))
-            throw new ParseException("Expected Identifier", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length() + 1);
+            throw new ParseException("Expected Identifier", tokens.getIndex(-1) + tokens.getLength(-1) + 1);
 
-        typeName = tokens.get(-1).getLiteral();
+        typeName = tokens.getLiteral(-1);
 
-        if(match("=")) {
+        if(match(Token.Kind.EQUALS)) {
             Ast.Expression expr = parseExpression();
             return new Ast.Global(name, typeName, true, Optional.of(expr));
         }
@@ -155,20 +467,20 @@ public final class Parser {
 
         String typeName = null;
 
-        match("VAL");
+        match(Token.Kind.VAL);
         if(!match(Token.Type.IDENTIFIER))
-            throw new ParseException("Expected Identifier", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length() + 1);
-        String name = tokens.get(-1).getLiteral();
+            throw new ParseException("Expected Identifier", tokens.getIndex(-1) + tokens.getLength(-1) + 1);
+        String name = tokens.getLiteral(-1);
 
-        if (!match(":"))
-            throw new ParseException("Expected colon", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
+        if (!match(Token.Kind.COLON))
+            throw new ParseException("Expected colon", tokens.getIndex(-1) + tokens.getLength(-1));
         else if (!match(Token.Type.IDENTIFIER))
-            throw new ParseException("Expected Identifier", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length() + 1);
+            throw new ParseException("Expected Identifier", tokens.getIndex(-1) + tokens.getLength(-1) + 1);
 
-        typeName = tokens.get(-1).getLiteral();
+        typeName = tokens.getLiteral(-1);
 
-        if(!match("="))
-            throw new ParseException("Expected Operator '='", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length() + 1);
+        if(!match(Token.Kind.EQUALS))
+            throw new ParseException("Expected Operator '='", tokens.getIndex(-1) + tokens.getLength(-1) + 1);
         Ast.Expression expr = parseExpression();
 
         return new Ast.Global(name, typeName, false, Optional.of(expr));
@@ -185,55 +497,99 @@ public final class Parser {
         List<String> parameterTypeNames = new ArrayList<String>();
         Optional<String> returnTypeName = Optional.empty();
 
-        match("FUN");
+        match(Token.Kind.FUN);
         if(!match(Token.Type.IDENTIFIER))
-            throw new ParseException("Expected Identifier", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length() + 1);
-        String functionName = tokens.get(-1).getLiteral();
+            throw new ParseException("Expected Identifier", tokens.getIndex(-1) + tokens.getLength(-1) + 1);
+        String functionName = tokens.getLiteral(-1);
 
-        if(!match("("))
-            throw new ParseException("Expected opening parenthesis", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
+        if(!match(Token.Kind.LEFT_PAREN))
+            throw new ParseException("Expected opening parenthesis", tokens.getIndex(-1) + tokens.getLength(-1));
 
         if(match(Token.Type.IDENTIFIER)) {
-            parameterList.add(tokens.get(-1).getLiteral());
+            parameterList.add(tokens.getLiteral(-1));
 
-            if (!match(":"))
-                throw new ParseException("Expected colon", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
+            if (!match(Token.Kind.COLON))
+                throw new ParseException("Expected colon", tokens.getIndex(-1) + tokens.getLength(-1));
             else if (!match(Token.Type.IDENTIFIER))
-                throw new ParseException("Expected Identifier", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length() + 1);
+                throw new ParseException("Expected Identifier", tokens.getIndex(-1) + tokens.getLength(-1) + 1);
 
-            parameterTypeNames.add(tokens.get(-1).getLiteral());
-            while (match(",")) {
+            parameterTypeNames.add(tokens.getLiteral(-1));
+            while (match(Token.Kind.COMMA)) {
                 if (!match(Token.Type.IDENTIFIER))
-                    throw new ParseException("Expected Identifier", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length() + 1);
+                    throw new ParseException("Expected Identifier", tokens.getIndex(-1) + tokens.getLength(-1) + 1);
 
-                parameterList.add(tokens.get(-1).getLiteral());
+                parameterList.add(tokens.getLiteral(-1));
 
-                if (!match(":"))
-                    throw new ParseException("Expected colon", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
+                if (!match(Token.Kind.COLON))
+                    throw new ParseException("Expected colon", tokens.getIndex(-1) + tokens.getLength(-1));
                 else if (!match(Token.Type.IDENTIFIER))
-                    throw new ParseException("Expected Identifier", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length() + 1);
+                    throw new ParseException("Expected Identifier", tokens.getIndex(-1) + tokens.getLength(-1) + 1);
 
-                parameterTypeNames.add(tokens.get(-1).getLiteral());
+                parameterTypeNames.add(tokens.getLiteral(-1));
             }
         }
-            if(!match(")"))
-                throw new ParseException("Expected ')'", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length() + 1);
+            if(!match(Token.Kind.RIGHT_PAREN))
+                throw new ParseException("Expected ')'", tokens.getIndex(-1) + tokens.getLength(-1) + 1);
 
-            else if(match(":")) {
+            else if(match(Token.Kind.COLON)) {
                 if(!match(Token.Type.IDENTIFIER))
-                    throw new ParseException("Expected Identifier", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length() + 1);
+                    throw new ParseException("Expected Identifier", tokens.getIndex(-1) + tokens.getLength(-1) + 1);
 
-                returnTypeName = Optional.ofNullable(tokens.get(-1).getLiteral());
+                returnTypeName = Optional.ofNullable(tokens.getLiteral(-1));
             }
 
-        if(!match("DO"))
-            throw new ParseException("Expected 'DO'", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length() + 1);
+        if(!match(Token.Kind.DO))
+            throw new ParseException("Expected 'DO'", tokens.getIndex(-1) + tokens.getLength(-1) + 1);
+
+        if (lazy && tokens.isRandomAccess()) {
+            int end = skipBlock();
+            if (end >= 0) {
+                TokenStream body = tokens.fork(tokens.position());
+                Mode mode = this.mode;
+                tokens.seek(end);
+                return new Ast.Function(functionName, parameterList, parameterTypeNames, returnTypeName,
+                        () -> new Parser(body.fork(body.position()), mode, false).parseBody(end));
+            }
+        }
 
         List<Ast.Statement> block = parseBlock();
 
         return new Ast.Function(functionName, parameterList, parameterTypeNames, returnTypeName, block);
     }
 
+    /**
+     * Returns the position after the {@code END} closing the current block,
+     * counting {@code DO} and {@code SWITCH} as opening nested blocks, or -1
+     * if the tokens run out first.
+     */
+    private int skipBlock() {
+        int depth = 1;
+        for (int offset = 0; tokens.has(offset); offset++) {
+            Token.Kind kind = tokens.getKind(offset);
+            if (kind == Token.Kind.DO || kind == Token.Kind.SWITCH)
+                depth++;
+            else if (kind == Token.Kind.END && --depth == 0)
+                return tokens.position() + offset + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Parses a function body which {@link #skipBlock()} found to end at the
+     * given position. A stray {@code ELSE} or {@code DEFAULT} ends the block
+     * early, after which the eager parser goes on with the globals and
+     * functions of the source, so this does the same to fail with the same
+     * error.
+     */
+    private List<Ast.Statement> parseBody(int end) throws ParseException {
+        List<Ast.Statement> block = parseBlock();
+        while (tokens.position() < end)
+            parseItem();
+        if (tokens.position() != end)
+            throw new ParseException("Expected END", tokens.getIndex(0));
+        return block;
+    }
+
     /**
      * Parses the {@code block} rule. This method should only be called if the
      * preceding token indicates the opening a block.
@@ -241,7 +597,7 @@ public final class Parser {
     public List<Ast.Statement> parseBlock() throws ParseException {
 
             List<Ast.Statement> statements = new ArrayList<>();
-                while (!(match("END") || peek("ELSE") || peek("DEFAULT"))) {
+                while (!(match(Token.Kind.END) || peek(Token.Kind.ELSE) || peek(Token.Kind.DEFAULT))) {
                     statements.add(parseStatement());
                 }
 
@@ -257,38 +613,42 @@ public final class Parser {
      * statement, then it is an expression/assignment statement.
      */
     public Ast.Statement parseStatement() throws ParseException {
-        if (peek("LET")) {
-            match("LET");
-            return parseDeclarationStatement();
-        } else if (peek("SWITCH")) {
-            match("SWITCH");
-            return parseSwitchStatement();
-        } else if (peek("IF")) {
-            match("IF");
-            return parseIfStatement();
-        } else if (peek("WHILE")) {
-            match("WHILE");
-            return parseWhileStatement();
-        } else if (peek("RETURN")) {
-            match("RETURN");
-            return parseReturnStatement();
+        // the FIRST sets of the keyword statements are disjoint, so one
+        // switch on the kind selects the production
+        switch (tokens.has(0) ? tokens.getKind(0) : Token.Kind.NONE) {
+            case LET:
+                tokens.advance();
+                return parseDeclarationStatement();
+            case SWITCH:
+                tokens.advance();
+                return parseSwitchStatement();
+            case IF:
+                tokens.advance();
+                return parseIfStatement();
+            case WHILE:
+                tokens.advance();
+                return parseWhileStatement();
+            case RETURN:
+                tokens.advance();
+                return parseReturnStatement();
+            default:
+                break;
+        }
+        Ast.Expression expr = parseExpression();
+        if (peek(Token.Kind.EQUALS)) {
+            match(Token.Kind.EQUALS);
+            Ast.Expression val = parseExpression();
+            if (peek(Token.Kind.SEMICOLON)) {
+                match(Token.Kind.SEMICOLON);
+                return new Ast.Statement.Assignment(expr, val);
+            } else {
+                throw new ParseException("Missing semicolon", tokens.getIndex(-1) + tokens.getLength(-1));
+            }
         } else {
-            Ast.Expression expr = parseExpression();
-            if (peek("=")) {
-                match("=");
-                Ast.Expression val = parseExpression();
-                if (peek(";")) {
-                    match(";");
-                    return new Ast.Statement.Assignment(expr, val);
-                } else {
-                    throw new ParseException("Missing semicolon", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
-                }
+            if (match(Token.Kind.SEMICOLON)) {
+                return new Ast.Statement.Expression(expr);
             } else {
-                if (match(";")) {
-                    return new Ast.Statement.Expression(expr);
-                } else {
-                    throw new ParseException("Missing semicolon", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
-                }
+                throw new ParseException("Missing semicolon", tokens.getIndex(-1) + tokens.getLength(-1));
             }
         }
     }
@@ -308,27 +668,27 @@ public final class Parser {
         Optional<String> typeName = Optional.empty();
 
         if(!match(Token.Type.IDENTIFIER))
-            throw new ParseException("Missing Identifier", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length() + 1);
+            throw new ParseException("Missing Identifier", tokens.getIndex(-1) + tokens.getLength(-1) + 1);
 
-        String name = tokens.get(-1).getLiteral();
+        String name = tokens.getLiteral(-1);
 
         //MODIFIED PARSER =============================
-        if(match(":"))  {
+        if(match(Token.Kind.COLON))  {
             if(!match(Token.Type.IDENTIFIER))
-                throw new ParseException("Missing Identifier", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length() + 1);
-            typeName = Optional.ofNullable(tokens.get(-1).getLiteral());
+                throw new ParseException("Missing Identifier", tokens.getIndex(-1) + tokens.getLength(-1) + 1);
+            typeName = Optional.ofNullable(tokens.getLiteral(-1));
         }
         //=============================================
 
-        if(match("=")){
+        if(match(Token.Kind.EQUALS)){
             expr = parseExpression();
-            if(!match(";"))
-                throw new ParseException("Missing Declarative Semicolon", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
+            if(!match(Token.Kind.SEMICOLON))
+                throw new ParseException("Missing Declarative Semicolon", tokens.getIndex(-1) + tokens.getLength(-1));
             return new Ast.Statement.Declaration(name, Optional.of(expr));
         }
 
-        else if(!match(";"))
-            throw new ParseException("Missing Declarative Semicolon", tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length());
+        else if(!match(Token.Kind.SEMICOLON))
+            throw new ParseException("Missing Declarative Semicolon", tokens.getIndex(-1) + tokens.getLength(-1));
 
         return new Ast.Statement.Declaration(name, typeName, Optional.empty());
     }
@@ -341,26 +701,26 @@ public final class Parser {
     public Ast.Statement.If parseIfStatement() throws ParseException {
         // 'IF' expression 'DO' block ('ELSE' block)? 'END' |
         // IF expr DO stmt; END
-        List<Ast.Statement> thenStates = new ArrayList<>();
+        List<Ast.Statement> thenStates;
         List<Ast.Statement> elseStates = new ArrayList<>();
 
         Ast.Expression expr = parseExpression();
-        int stringLeng = expr.getClass().toString().length() - 34;
         //tokens.get(0).getLiteral().length();
         try {
-            if (!match("DO")) {
-                throw new ParseException("Expected DO at: " + tokens.get(0).getIndex(), tokens.get(0).getIndex());
+            if (!match(Token.Kind.DO)) {
+                throw new ParseException("Expected DO at: " + tokens.getIndex(0), tokens.getIndex(0));
             } else {
-                //match("DO");
+                //match(Token.Kind.DO);
                 thenStates = parseBlock();
             }
         }
         catch (ArrayIndexOutOfBoundsException e){
+            int stringLeng = expr.getClass().toString().length() - 34;
             //System.out.print(stringLeng);
-            throw new ParseException("Expected Do at: " + (tokens.get(-1).getIndex() + stringLeng), tokens.get(-1).getIndex() + stringLeng);
+            throw new ParseException("Expected Do at: " + (tokens.getIndex(-1) + stringLeng), tokens.getIndex(-1) + stringLeng);
         }
 
-        if(match("ELSE")){
+        if(match(Token.Kind.ELSE)){
             elseStates = parseBlock();
         }
 
@@ -378,15 +738,15 @@ public final class Parser {
         Ast.Expression expr = parseExpression();
         List<Ast.Statement.Case> cases = new ArrayList<>();
 
-        while (peek("CASE")){
+        while (peek(Token.Kind.CASE)){
             cases.add(parseCaseStatement());
         }
         // default is a case statement without a value
-        if(peek("DEFAULT")){
+        if(peek(Token.Kind.DEFAULT)){
             cases.add(parseCaseStatement());
         }
         else
-            throw new ParseException("Expected Default at: " + tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length() + 1, tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length() + 1);
+            throw new ParseException("Expected Default at: " + tokens.getIndex(-1) + tokens.getLength(-1) + 1, tokens.getIndex(-1) + tokens.getLength(-1) + 1);
 
         return new Ast.Statement.Switch(expr, cases);
     }
@@ -398,22 +758,22 @@ public final class Parser {
      */
     public Ast.Statement.Case parseCaseStatement() throws ParseException {
         //('CASE' expression  ':' block)* 'DEFAULT' block 'END'
-        List<Ast.Statement> statements = new ArrayList<>();
+        List<Ast.Statement> statements;
 
-        if(match("CASE")) {
+        if(match(Token.Kind.CASE)) {
             Ast.Expression expr = parseExpression();
-            if (peek(":")) {
-                match(":");
+            if (peek(Token.Kind.COLON)) {
+                match(Token.Kind.COLON);
                 statements = parseBlock();
             } else
-                throw new ParseException("Missing colon at: " + tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length(), tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length() + 1);
+                throw new ParseException("Missing colon at: " + tokens.getIndex(-1) + tokens.getLength(-1), tokens.getIndex(-1) + tokens.getLength(-1) + 1);
             return new Ast.Statement.Case(Optional.of(expr),statements);
         }
-        else if(match("DEFAULT")){
+        else if(match(Token.Kind.DEFAULT)){
             statements = parseBlock();
             return new Ast.Statement.Case(Optional.empty(), statements);
         }
-        throw new ParseException("Could not find CASE or DEFAULT", tokens.get(0).getIndex());
+        throw new ParseException("Could not find CASE or DEFAULT", tokens.getIndex(0));
     }
 
     /**
@@ -424,25 +784,21 @@ public final class Parser {
     public Ast.Statement.While parseWhileStatement() throws ParseException {
         // 'while' expression 'do' block 'end'
         //WHILE expr DO stmt; END
-        System.out.println("Found While");
-        List<Ast.Statement> states = new ArrayList<>();
+        List<Ast.Statement> states;
 
         Ast.Expression expr = parseExpression();
         try {
-            if (peek("DO")) {
-                match("DO");
-                System.out.println("Found Do");
+            if (peek(Token.Kind.DO)) {
+                match(Token.Kind.DO);
                 states = parseBlock();
             } else
-                throw new ParseException("Expected DO at: " + tokens.get(-1).getIndex(), tokens.get(-1).getIndex());
+                throw new ParseException("Expected DO at: " + tokens.getIndex(-1), tokens.getIndex(-1));
         }
         catch(ArrayIndexOutOfBoundsException e){
-            throw new ParseException("Expected End at: " + (tokens.get(-1).getIndex() + 1), (tokens.get(-1).getIndex() + 1));
+            throw new ParseException("Expected End at: " + (tokens.getIndex(-1) + 1), (tokens.getIndex(-1) + 1));
         }
         //List<Ast.Statement> statements = new ArrayList<>();
 
-
-        System.out.println("Found end");
         return new Ast.Statement.While(expr, states);
     }
 
@@ -454,12 +810,11 @@ public final class Parser {
     public Ast.Statement.Return parseReturnStatement() throws ParseException {
         //RETURN expr ;
         // 'RETURN' expression ';' |expression ('=' expression)? ';'
-        System.out.println("Found return");
         Ast.Expression expr = parseExpression();
         //Ast.Expression extra = parseExpression();
 
-        if(!match(";"))
-            throw new ParseException("Missing Semicolon in return" , tokens.get(0).getIndex());
+        if(!match(Token.Kind.SEMICOLON))
+            throw new ParseException("Missing Semicolon in return" , tokens.getIndex(0));
         //System.out.println(toString(Ast.Statement.Return(expr)));
         return new Ast.Statement.Return(expr);
     }
@@ -468,17 +823,178 @@ public final class Parser {
      * Parses the {@code expression} rule.
      */
     public Ast.Expression parseExpression() throws ParseException {
+        if (mode == Mode.PRATT)
+            return parseBinaryExpression();
         return parseLogicalExpression(); //TODO write parse exception
     }
 
+    /**
+     * Parses an expression by precedence climbing, with explicit stacks of
+     * operands and operators instead of recursion. Each operand is parsed
+     * directly, and the operator after it is classified with a single table
+     * lookup instead of a failed match at every level. As all operators are
+     * left associative, operators of the same or higher precedence on the
+     * stack are applied before pushing the next one.
+     *
+     * A group, the arguments of a call and the offset of an access push a
+     * {@link Frame} with its own part of the stacks instead of recursing, so
+     * the depth of an expression only costs heap. The trees, and errors, are
+     * the same as those of {@link #parsePrimaryExpression()}.
+     */
+    private Ast.Expression parseBinaryExpression() throws ParseException {
+        List<Frame> frames = null;
+        Frame frame = null;
+        operandCount = 0;
+        operatorCount = 0;
+        try {
+            while (true) {
+                Ast.Expression operand = parseLiteral();
+                if (operand == null) {
+                    if (match(Token.Type.IDENTIFIER)) {
+                        String name = tokens.getLiteral(-1);
+                        if (match(Token.Kind.LEFT_PAREN)) {
+                            List<Ast.Expression> arguments = new ArrayList<>();
+                            if (!matchArgument()) {
+                                operand = new Ast.Expression.Function(name, arguments);
+                            } else {
+                                frame = new Frame(Frame.CALL, name, arguments, operatorCount);
+                            }
+                        } else if (match(Token.Kind.LEFT_BRACKET)) {
+                            frame = new Frame(Frame.OFFSET, name, null, operatorCount);
+                        } else {
+                            operand = new Ast.Expression.Access(Optional.empty(), name);
+                        }
+                    } else if (match(Token.Kind.LEFT_PAREN)) {
+                        frame = new Frame(Frame.GROUP, null, null, operatorCount);
+                    } else {
+                        throw new ParseException("Invalid Expression", tokens.getIndex(0));
+                    }
+                    if (operand == null) {
+                        if (frames == null) {
+                            frames = new ArrayList<>();
+                        }
+                        frames.add(frame);
+                        continue;
+                    }
+                }
+                pushOperand(operand);
+                while (true) {
+                    int precedence = tokens.has(0) ? PRECEDENCE[tokens.getKind(0).ordinal()] : 0;
+                    int base = frame == null ? 0 : frame.operators;
+                    while (operatorCount > base && (precedence == 0 || PRECEDENCE[operators[operatorCount - 1].ordinal()] >= precedence)) {
+                        reduce();
+                    }
+                    if (precedence != 0) {
+                        if (operatorCount == operators.length) {
+                            operators = Arrays.copyOf(operators, operatorCount * 2);
+                        }
+                        operators[operatorCount++] = tokens.getKind(0);
+                        tokens.advance();
+                        break;
+                    }
+                    // The operands of the frame have been reduced to one
+                    Ast.Expression expr = operands[--operandCount];
+                    operands[operandCount] = null;
+                    if (frame == null) {
+                        return expr;
+                    } else if (frame.kind == Frame.CALL) {
+                        frame.arguments.add(expr);
+                        if (matchArgument()) {
+                            break;
+                        }
+                        expr = new Ast.Expression.Function(frame.name, frame.arguments);
+                    } else if (frame.kind == Frame.OFFSET) {
+                        Ast.Expression.Access offset = (Ast.Expression.Access) expr;
+                        expr = new Ast.Expression.Access(Optional.of(new Ast.Expression.Access(Optional.empty(), offset.getName())), frame.name);
+                        match(Token.Kind.RIGHT_BRACKET);
+                    } else if (match(Token.Kind.RIGHT_PAREN)) {
+                        expr = new Ast.Expression.Group(expr);
+                    } else {
+                        throw new ParseException("No closing parenthesis: " + (tokens.getIndex(-1)), tokens.getIndex(-1));
+                    }
+                    frames.remove(frames.size() - 1);
+                    frame = frames.isEmpty() ? null : frames.get(frames.size() - 1);
+                    pushOperand(expr);
+                }
+            }
+        } finally {
+            // Also after an error, so a reused parser does not keep the
+            // fragments of a failed expression alive
+            Arrays.fill(operands, 0, operandCount, null);
+            Arrays.fill(operators, 0, operatorCount, null);
+            operandCount = 0;
+            operatorCount = 0;
+        }
+    }
+
+    /**
+     * Matches what comes before the next argument of a call, returning false
+     * if instead the call is closed, as in {@link #parsePrimaryExpression()}.
+     */
+    private boolean matchArgument() throws ParseException {
+        if (match(Token.Kind.RIGHT_PAREN)) {
+            return false;
+        }
+        if (peek(Token.Kind.COMMA)) {
+            match(Token.Kind.COMMA);
+            if (peek(Token.Kind.RIGHT_PAREN)) {
+                throw new ParseException("Trailing Comma at: " + (tokens.getIndex(-1)), tokens.getIndex(-1));
+            }
+        }
+        return true;
+    }
+
+    private void pushOperand(Ast.Expression operand) {
+        if (operandCount == operands.length) {
+            operands = Arrays.copyOf(operands, operandCount * 2);
+        }
+        operands[operandCount++] = operand;
+    }
+
+    /**
+     * Replaces the top two operands with the top operator applied to them.
+     */
+    private void reduce() {
+        Ast.Expression right = operands[--operandCount];
+        Ast.Expression left = operands[operandCount - 1];
+        operands[operandCount] = null;
+        operands[operandCount - 1] = new Ast.Expression.Binary(operators[--operatorCount].getLiteral(), left, right);
+        operators[operatorCount] = null;
+    }
+
+    /**
+     * An expression in parentheses, brackets or the arguments of a call, which
+     * is being parsed by {@link #parseBinaryExpression()} with the operators
+     * above the given height of the stack.
+     */
+    private static final class Frame {
+
+        private static final int GROUP = 0;
+        private static final int CALL = 1;
+        private static final int OFFSET = 2;
+
+        private final int kind;
+        private final String name;
+        private final List<Ast.Expression> arguments;
+        private final int operators;
+
+        private Frame(int kind, String name, List<Ast.Expression> arguments, int operators) {
+            this.kind = kind;
+            this.name = name;
+            this.arguments = arguments;
+            this.operators = operators;
+        }
+
+    }
+
     /**
      * Parses the {@code logical-expression} rule.
      */
     public Ast.Expression parseLogicalExpression() throws ParseException { // logical_expression ::= comparison_expression (('&&' | '||') comparison_expression)*
         Ast.Expression expr = parseComparisonExpression();
 
-        while(match("&&")||match("||")) {   // Kleene closure: (('&' | '||') comparison_expression)*
-            String operator_logical = tokens.get(-1).getLiteral();  // Gets && or || from token
+        while(match(Token.Kind.AND)||match(Token.Kind.OR)) {   // Kleene closure: (('&' | '||') comparison_expression)*
+            String operator_logical = tokens.getLiteral(-1);  // Gets && or || from token
             Ast.Expression right = parseComparisonExpression();     // Gets the expression to the right of the operator
             expr = new Ast.Expression.Binary(operator_logical, expr, right);    // Creates binary expression combining previous parts
         }
@@ -491,8 +1007,8 @@ public final class Parser {
     public Ast.Expression parseComparisonExpression() throws ParseException { // additive_expression (('<' | '>' | '==' | '!=') additive_expression)*
         Ast.Expression expr = parseAdditiveExpression();
 
-        while(match("<") || match(">") || match("==") || match("!=")) { //(('<' | '>' | '==' | '!=') additive_expression)*
-            String operator_comparison = tokens.get(-1).getLiteral();
+        while(match(Token.Kind.LESS) || match(Token.Kind.GREATER) || match(Token.Kind.EQUAL_EQUAL) || match(Token.Kind.NOT_EQUAL)) { //(('<' | '>' | '==' | '!=') additive_expression)*
+            String operator_comparison = tokens.getLiteral(-1);
             Ast.Expression right = parseAdditiveExpression();
             expr = new Ast.Expression.Binary(operator_comparison, expr, right);
         }
@@ -505,8 +1021,8 @@ public final class Parser {
     public Ast.Expression parseAdditiveExpression() throws ParseException { // multiplicative_expression (('+' | '-') multiplicative_expression)*
         Ast.Expression expr = parseMultiplicativeExpression();
 
-        while (match("+") || match("-")) { // (('+' | '-') multiplicative_expression)*
-            String operator_additive = tokens.get(-1).getLiteral();
+        while (match(Token.Kind.PLUS) || match(Token.Kind.MINUS)) { // (('+' | '-') multiplicative_expression)*
+            String operator_additive = tokens.getLiteral(-1);
             Ast.Expression right = parseMultiplicativeExpression();
             expr = new Ast.Expression.Binary(operator_additive,expr,right);
         }
@@ -519,8 +1035,8 @@ public final class Parser {
     public Ast.Expression parseMultiplicativeExpression() throws ParseException { // primary_expression (('*' | '/' | '^') primary_expression)*
         Ast.Expression expr = parsePrimaryExpression();
 
-        while(match("*") || match("/") || match("^")) { // (('*' | '/' | '^') primary_expression)*
-            String operator_multiplicative = tokens.get(-1).getLiteral();
+        while(match(Token.Kind.STAR) || match(Token.Kind.SLASH) || match(Token.Kind.CARET)) { // (('*' | '/' | '^') primary_expression)*
+            String operator_multiplicative = tokens.getLiteral(-1);
             Ast.Expression right = parsePrimaryExpression();
             expr = new Ast.Expression.Binary(operator_multiplicative, expr, right);
         }
@@ -534,135 +1050,338 @@ public final class Parser {
      * not strictly necessary.
      */
     public Ast.Expression parsePrimaryExpression() throws ParseException {
-        if (match("NIL")) return new Ast.Expression.Literal(null);
-        else if (match("TRUE")) return new Ast.Expression.Literal(true);
-        else if (match("FALSE")) return new Ast.Expression.Literal(false);
-        else if (match(Token.Type.INTEGER)) return new Ast.Expression.Literal(new BigInteger(tokens.get(-1).getLiteral()));
-        else if (match(Token.Type.DECIMAL)) return new Ast.Expression.Literal(new BigDecimal(tokens.get(-1).getLiteral()));
-        else if (match(Token.Type.CHARACTER)) {
-            String temp = tokens.get(-1).getLiteral();
-            return new Ast.Expression.Literal(tokens.get(-1).getLiteral().charAt(1));
-        }
+        Ast.Expression literal = parseLiteral();
+        if (literal != null) return literal;
         else if (match(Token.Type.IDENTIFIER)) {
-            String temp = tokens.get(-1).getLiteral();
+            String temp = tokens.getLiteral(-1);
             //function call expression
-            List<Ast.Expression> expr = new ArrayList<Ast.Expression>();
-            if(match("(")){
-                while(!match(")")){
-                    if(peek(",")) {
-                        match(",");
-                        if (peek(")")) {
-                            throw new ParseException("Trailing Comma at: " + (tokens.get(-1).getIndex()), tokens.get(-1).getIndex());
+            if(match(Token.Kind.LEFT_PAREN)){
+                List<Ast.Expression> expr = new ArrayList<Ast.Expression>();
+                while(!match(Token.Kind.RIGHT_PAREN)){
+                    if(peek(Token.Kind.COMMA)) {
+                        match(Token.Kind.COMMA);
+                        if (peek(Token.Kind.RIGHT_PAREN)) {
+                            throw new ParseException("Trailing Comma at: " + (tokens.getIndex(-1)), tokens.getIndex(-1));
                         }
                     }
                     expr.add(parseExpression());
                 }
                 return new Ast.Expression.Function(temp, expr);
             }
-            else if(match("[")) {
+            else if(match(Token.Kind.LEFT_BRACKET)) {
                 Ast.Expression.Access offset = (Ast.Expression.Access) parseExpression();
                 Ast.Expression.Access access = new Ast.Expression.Access(Optional.of(new Ast.Expression.Access(Optional.empty(), offset.getName())), temp);
-                match("]");
+                match(Token.Kind.RIGHT_BRACKET);
                 return access;
             }
             return new Ast.Expression.Access(Optional.empty(), temp);
         }
-        else if(match(Token.Type.STRING)){
-            String temp = tokens.get(-1).getLiteral();
-            temp = temp.substring(1, temp.length()-1);
-            // needs all escape char
-            if(temp.contains("\\")){
-                temp = temp.replace("\\n", "\n")
-                        .replace("\\b", "\b");
-            }
-            return new Ast.Expression.Literal(temp);
-        }
-        else if (match("(")) {
+        else if (match(Token.Kind.LEFT_PAREN)) {
             Ast.Expression expr = parseExpression();    //Inner Expression
-            if(match(")"))
+            if(match(Token.Kind.RIGHT_PAREN))
                 return new Ast.Expression.Group(expr);
             else {
-                String temp = tokens.get(-1).getLiteral();
-                throw new ParseException("No closing parenthesis: " + (tokens.get(-1).getIndex()), tokens.get(-1).getIndex());
+                String temp = tokens.getLiteral(-1);
+                throw new ParseException("No closing parenthesis: " + (tokens.getIndex(-1)), tokens.getIndex(-1));
             }
         }
-        throw new ParseException("Invalid Expression", tokens.get(0).getIndex());
+        throw new ParseException("Invalid Expression", tokens.getIndex(0));
     }
 
     /**
-     * As in the lexer, returns {@code true} if the current sequence of tokens
-     * matches the given patterns. Unlike the lexer, the pattern is not a regex;
-     * instead it is either a {@link Token.Type}, which matches if the token's
-     * type is the same, or a {@link String}, which matches if the token's
-     * literal is the same.
-     *
-     * In other words, {@code Token(IDENTIFIER, "literal")} is matched by both
-     * {@code peek(Token.Type.IDENTIFIER)} and {@code peek("literal")}.
-     */
-    private boolean peek(Object... patterns) {
-        for (int i = 0; i < patterns.length; i++) {
-            if (!tokens.has(i)) {
-                return false;
-            } else if (patterns[i] instanceof Token.Type) {
-                if (patterns[i] != tokens.get(i).getType()) {
-                    return false;
-                }
-            } else if (patterns[i] instanceof String) {
-                if(!patterns[i].equals(tokens.get(i).getLiteral())) {
-                    return false;
-                }
-            } else {
-                throw new AssertionError("Invalid pattern object: " + patterns[i].getClass());
-            }
+     * Parses a literal, or returns null if the next token is not one.
+     */
+    private Ast.Expression parseLiteral() {
+        if (match(Token.Kind.NIL)) return new Ast.Expression.Literal(null);
+        else if (match(Token.Kind.TRUE)) return new Ast.Expression.Literal(true);
+        else if (match(Token.Kind.FALSE)) return new Ast.Expression.Literal(false);
+        else if (match(Token.Type.INTEGER) || match(Token.Type.DECIMAL) || match(Token.Type.CHARACTER) || match(Token.Type.STRING)) {
+            // decoded (and unescaped) by the lexer
+            return new Ast.Expression.Literal(tokens.getValue(-1));
         }
-        return true;
+        return null;
+    }
+
+    /**
+     * As in the lexer, returns {@code true} if the next token matches the
+     * given pattern. Unlike the lexer, the pattern is not a regex; instead it
+     * is either a {@link Token.Kind}, which matches if the token is that
+     * keyword or operator, or a {@link Token.Type}, which matches if the
+     * token's type is the same.
+     *
+     * In other words, {@code Token(IDENTIFIER, "DO")} is matched by both
+     * {@code peek(Token.Type.IDENTIFIER)} and {@code peek(Token.Kind.DO)}.
+     * Kinds are compared by identity, so matching allocates nothing.
+     */
+    private boolean peek(Token.Kind kind) {
+        return tokens.has(0) && tokens.getKind(0) == kind;
+    }
+
+    private boolean peek(Token.Type type) {
+        return tokens.has(0) && tokens.getType(0) == type;
     }
 
     /**
-     * As in the lexer, returns {@code true} if {@link #peek(Object...)} is true
-     * and advances the token stream.
+     * As in the lexer, returns {@code true} if {@link #peek(Token.Kind)} is
+     * true and advances the token stream.
      */
-    private boolean match(Object... patterns) {
-        boolean peek = peek(patterns);
+    private boolean match(Token.Kind kind) {
+        boolean peek = peek(kind);
+        if (peek) {
+            tokens.advance();
+        }
+        return peek;
+    }
 
+    private boolean match(Token.Type type) {
+        boolean peek = peek(type);
         if (peek) {
-            for (int i = 0; i < patterns.length; i++) {
-                tokens.advance();
-            }
+            tokens.advance();
         }
         return peek;
     }
 
-    private static final class TokenStream {
+    private static abstract class TokenStream {
 
-        private final List<Token> tokens;
-        private int index = 0;
+        /**
+         * Returns true if there is a token at index + offset.
+         */
+        public abstract boolean has(int offset);
 
-        private TokenStream(List<Token> tokens) {
-            this.tokens = tokens;
+        /**
+         * Gets the token at index + offset.
+         */
+        public abstract Token get(int offset);
+
+        /**
+         * Advances to the next token, incrementing the index.
+         */
+        public abstract void advance();
+
+        /**
+         * Returns true if the stream supports {@link #position()}, {@link
+         * #seek(int)} and {@link #fork(int)}.
+         */
+        public boolean isRandomAccess() {
+            return false;
         }
 
         /**
-         * Returns true if there is a token at index + offset.
+         * Gets the absolute index of the current token.
          */
-        public boolean has(int offset) {
-            return index + offset < tokens.size();
+        public int position() {
+            throw new UnsupportedOperationException();
         }
 
         /**
-         * Gets the token at index + offset.
+         * Moves to the given absolute index.
          */
-        public Token get(int offset) {
-            return tokens.get(index + offset);
+        public void seek(int position) {
+            throw new UnsupportedOperationException();
         }
 
         /**
-         * Advances to the next token, incrementing the index.
+         * Creates an independent stream over the same tokens, starting at the
+         * given absolute index.
+         */
+        public TokenStream fork(int position) {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Gets the type of the token at index + offset.
+         */
+        public Token.Type getType(int offset) {
+            return get(offset).getType();
+        }
+
+        /**
+         * Gets the keyword or operator kind of the token at index + offset.
+         */
+        public Token.Kind getKind(int offset) {
+            return get(offset).getKind();
+        }
+
+        /**
+         * Gets the decoded value of the literal token at index + offset.
          */
+        public Object getValue(int offset) {
+            return get(offset).getValue();
+        }
+
+        public String getLiteral(int offset) {
+            return get(offset).getLiteral();
+        }
+
+        public int getIndex(int offset) {
+            return get(offset).getIndex();
+        }
+
+        public int getLength(int offset) {
+            return get(offset).getLength();
+        }
+
+    }
+
+    private static final class BufferTokenStream extends TokenStream {
+
+        private TokenBuffer tokens;
+        private int index = 0;
+
+        private BufferTokenStream(TokenBuffer tokens) {
+            this.tokens = tokens;
+        }
+
+        @Override
+        public boolean isRandomAccess() {
+            return true;
+        }
+
+        @Override
+        public int position() {
+            return index;
+        }
+
+        @Override
+        public void seek(int position) {
+            index = position;
+        }
+
+        @Override
+        public TokenStream fork(int position) {
+            BufferTokenStream stream = new BufferTokenStream(tokens);
+            stream.index = position;
+            return stream;
+        }
+
+        private void reset(TokenBuffer tokens) {
+            this.tokens = tokens;
+            this.index = 0;
+        }
+
+        @Override
+        public boolean has(int offset) {
+            return index + offset < tokens.size();
+        }
+
+        @Override
+        public Token get(int offset) {
+            return tokens.get(index + offset);
+        }
+
+        @Override
         public void advance() {
             index++;
         }
 
+        @Override
+        public Token.Type getType(int offset) {
+            return tokens.getType(index + offset);
+        }
+
+        @Override
+        public Token.Kind getKind(int offset) {
+            return tokens.getKind(index + offset);
+        }
+
+        @Override
+        public Object getValue(int offset) {
+            return tokens.getValue(index + offset);
+        }
+
+        @Override
+        public String getLiteral(int offset) {
+            return tokens.getLiteral(index + offset);
+        }
+
+        @Override
+        public int getIndex(int offset) {
+            return tokens.getIndex(index + offset);
+        }
+
+        @Override
+        public int getLength(int offset) {
+            return tokens.getLength(index + offset);
+        }
+
+    }
+
+    private static final class ListTokenStream extends TokenStream {
+
+        private List<Token> tokens;
+        private int index = 0;
+
+        private ListTokenStream(List<Token> tokens) {
+            this.tokens = tokens;
+        }
+
+        @Override
+        public boolean isRandomAccess() {
+            return true;
+        }
+
+        @Override
+        public int position() {
+            return index;
+        }
+
+        @Override
+        public void seek(int position) {
+            index = position;
+        }
+
+        @Override
+        public TokenStream fork(int position) {
+            ListTokenStream stream = new ListTokenStream(tokens);
+            stream.index = position;
+            return stream;
+        }
+
+        private void reset(List<Token> tokens) {
+            this.tokens = tokens;
+            this.index = 0;
+        }
+
+        @Override
+        public boolean has(int offset) {
+            return index + offset < tokens.size();
+        }
+
+        @Override
+        public Token get(int offset) {
+            return tokens.get(index + offset);
+        }
+
+        @Override
+        public void advance() {
+            index++;
+        }
+
+    }
+
+    private static final class SourceTokenStream extends TokenStream {
+
+        private TokenSource source;
+
+        private SourceTokenStream(TokenSource source) {
+            this.source = source;
+        }
+
+        @Override
+        public boolean has(int offset) {
+            return source.has(offset);
+        }
+
+        @Override
+        public Token get(int offset) {
+            return source.get(offset);
+        }
+
+        @Override
+        public void advance() {
+            source.advance();
+        }
+
     }
 
-}
\ No newline at end of file
+}
@@ -35,13 +35,12 @@ public final class Scope {
     }
 
     public Environment.Variable lookupVariable(String name) {
-        if (variables.containsKey(name)) {
-            return variables.get(name);
-        } else if (parent != null) {
-            return parent.lookupVariable(name);
-        } else {
-            throw new RuntimeException("The variable " + name + " is not defined in this scope.");
+        for (Scope scope = this; scope != null; scope = scope.parent) {
+            if (scope.variables.containsKey(name)) {
+                return scope.variables.get(name);
+            }
         }
+        throw new RuntimeException("The variable " + name + " is not defined in this scope.");
     }
 
     public void defineFunction(String name, int arity, Function<List<Environment.PlcObject>, Environment.PlcObject> function) {
@@ -63,13 +62,13 @@ public final class Scope {
     }
 
     public Environment.Function lookupFunction(String name, int arity) {
-        if (functions.containsKey(name + "/" + arity)) {
-            return functions.get(name + "/" + arity);
-        } else if (parent != null) {
-            return parent.lookupFunction(name, arity);
-        } else {
-            throw new RuntimeException("The function " + name + "/" + arity + " is not defined in this scope.");
+        String key = name + "/" + arity;
+        for (Scope scope = this; scope != null; scope = scope.parent) {
+            if (scope.functions.containsKey(key)) {
+                return scope.functions.get(key);
+            }
         }
+        throw new RuntimeException("The function " + key + " is not defined in this scope.");
     }
 
     @Override
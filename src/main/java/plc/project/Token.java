@@ -11,21 +11,206 @@ public final class Token {
         OPERATOR
     }
 
+    /**
+     * The keyword or operator a token spells, recognized once by the lexer so
+     * the parser can compare kinds instead of literals. Identifiers which are
+     * not keywords, literals and operators the grammar does not use are
+     * {@link #NONE}.
+     */
+    public enum Kind {
+        NONE(null),
+        LIST("LIST"), VAR("VAR"), VAL("VAL"), FUN("FUN"), LET("LET"),
+        DO("DO"), END("END"), IF("IF"), ELSE("ELSE"), SWITCH("SWITCH"),
+        CASE("CASE"), DEFAULT("DEFAULT"), WHILE("WHILE"), RETURN("RETURN"),
+        NIL("NIL"), TRUE("TRUE"), FALSE("FALSE"),
+        LEFT_PAREN("("), RIGHT_PAREN(")"), LEFT_BRACKET("["), RIGHT_BRACKET("]"),
+        COMMA(","), SEMICOLON(";"), COLON(":"), EQUALS("="),
+        EQUAL_EQUAL("=="), NOT_EQUAL("!="), LESS("<"), LESS_EQUAL("<="),
+        GREATER(">"), GREATER_EQUAL(">="), PLUS("+"), MINUS("-"), STAR("*"),
+        SLASH("/"), CARET("^"), NOT("!"), AND("&&"), OR("||");
+
+        private final String literal;
+
+        Kind(String literal) {
+            this.literal = literal;
+        }
+
+        public String getLiteral() {
+            return literal;
+        }
+
+        /**
+         * Returns the kind of the token of the given type spelled by
+         * {@code source[start, start + length)}. The length and first
+         * character select the only possible candidate, which then needs a
+         * single comparison, so this is a perfect hash over the keywords and
+         * operators.
+         */
+        public static Kind of(Type type, CharSequence source, int start, int length) {
+            if (type != Type.IDENTIFIER && type != Type.OPERATOR || length == 0) {
+                return NONE;
+            }
+            char first = source.charAt(start);
+            Kind kind;
+            switch (length) {
+                case 1:
+                    switch (first) {
+                        case '(': return LEFT_PAREN;
+                        case ')': return RIGHT_PAREN;
+                        case '[': return LEFT_BRACKET;
+                        case ']': return RIGHT_BRACKET;
+                        case ',': return COMMA;
+                        case ';': return SEMICOLON;
+                        case ':': return COLON;
+                        case '=': return EQUALS;
+                        case '<': return LESS;
+                        case '>': return GREATER;
+                        case '+': return PLUS;
+                        case '-': return MINUS;
+                        case '*': return STAR;
+                        case '/': return SLASH;
+                        case '^': return CARET;
+                        case '!': return NOT;
+                        default: return NONE;
+                    }
+                case 2:
+                    switch (first) {
+                        case 'D': kind = DO; break;
+                        case 'I': kind = IF; break;
+                        case '=': kind = EQUAL_EQUAL; break;
+                        case '!': kind = NOT_EQUAL; break;
+                        case '<': kind = LESS_EQUAL; break;
+                        case '>': kind = GREATER_EQUAL; break;
+                        case '&': kind = AND; break;
+                        case '|': kind = OR; break;
+                        default: return NONE;
+                    }
+                    break;
+                case 3:
+                    switch (first) {
+                        case 'V': kind = source.charAt(start + 2) == 'R' ? VAR : VAL; break;
+                        case 'F': kind = FUN; break;
+                        case 'L': kind = LET; break;
+                        case 'E': kind = END; break;
+                        case 'N': kind = NIL; break;
+                        default: return NONE;
+                    }
+                    break;
+                case 4:
+                    switch (first) {
+                        case 'L': kind = LIST; break;
+                        case 'E': kind = ELSE; break;
+                        case 'C': kind = CASE; break;
+                        case 'T': kind = TRUE; break;
+                        default: return NONE;
+                    }
+                    break;
+                case 5:
+                    switch (first) {
+                        case 'W': kind = WHILE; break;
+                        case 'F': kind = FALSE; break;
+                        default: return NONE;
+                    }
+                    break;
+                case 6:
+                    switch (first) {
+                        case 'S': kind = SWITCH; break;
+                        case 'R': kind = RETURN; break;
+                        default: return NONE;
+                    }
+                    break;
+                case 7:
+                    kind = first == 'D' ? DEFAULT : NONE;
+                    break;
+                default:
+                    return NONE;
+            }
+            return kind != NONE && regionEquals(source, start, length, kind.literal) ? kind : NONE;
+        }
+
+    }
+
     private final Type type;
-    private final String literal;
+    private final Kind kind;
+    private Object value;
+    private String literal;
     private final int index;
+    private final CharSequence source;
+    private final int length;
 
     public Token(Type type, String literal, int index) {
         this.type = type;
+        this.kind = Kind.of(type, literal, 0, literal.length());
         this.literal = literal;
         this.index = index;
+        this.source = null;
+        this.length = literal.length();
+    }
+
+    /**
+     * Creates a token with the kind and value (if any) already decoded by the
+     * lexer.
+     */
+    Token(Type type, Kind kind, Object value, String literal, int index) {
+        this.type = type;
+        this.kind = kind;
+        this.value = value;
+        this.literal = literal;
+        this.index = index;
+        this.source = null;
+        this.length = literal.length();
+    }
+
+    /**
+     * Creates a token which is a view over {@code source}, starting at index.
+     * The literal is only copied out of the source when {@link #getLiteral()}
+     * is first called. The kind and value (if any) have already been decoded
+     * by the lexer.
+     */
+    Token(Type type, Kind kind, Object value, CharSequence source, int index, int length) {
+        this.type = type;
+        this.kind = kind;
+        this.value = value;
+        this.index = index;
+        this.source = source;
+        this.length = length;
     }
 
     public Type getType() {
         return type;
     }
 
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the value of a literal token: a {@link java.math.BigInteger},
+     * {@link java.math.BigDecimal}, {@link Character} or unescaped {@link
+     * String}, or null for identifiers and operators. The lexer decodes values
+     * while scanning, so this only has to decode the literal for tokens which
+     * were created directly.
+     */
+    public Object getValue() {
+        if (value == null) {
+            value = Lexer.decode(type, getLiteral());
+        }
+        return value;
+    }
+
+    /**
+     * Returns the value if it has already been decoded, otherwise null.
+     */
+    Object getDecodedValue() {
+        return value;
+    }
+
     public String getLiteral() {
+        if (literal == null) {
+            literal = source instanceof String
+                    ? ((String) source).substring(index, index + length)
+                    : source.subSequence(index, index + length).toString();
+        }
         return literal;
     }
 
@@ -33,17 +218,46 @@ public final class Token {
         return index;
     }
 
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Returns true if the literal equals the given string, comparing against
+     * the source directly if the literal has not been materialized.
+     */
+    public boolean literalEquals(String string) {
+        if (literal != null) {
+            return literal.equals(string);
+        }
+        return regionEquals(source, index, length, string);
+    }
+
+    static boolean regionEquals(CharSequence source, int start, int length, String string) {
+        if (length != string.length()) {
+            return false;
+        } else if (source instanceof String) {
+            return ((String) source).regionMatches(start, string, 0, length);
+        }
+        for (int i = 0; i < length; i++) {
+            if (source.charAt(start + i) != string.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public boolean equals(Object obj) {
         return obj instanceof Token
                 && type == ((Token) obj).type
-                && literal.equals(((Token) obj).literal)
+                && getLiteral().equals(((Token) obj).getLiteral())
                 && index == ((Token) obj).index;
     }
 
     @Override
     public String toString() {
-        return type + "=" + literal + "@" + index;
+        return type + "=" + getLiteral() + "@" + index;
     }
 
 }
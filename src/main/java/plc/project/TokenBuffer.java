@@ -0,0 +1,243 @@
+package plc.project;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+
+/**
+ * A compact, struct-of-arrays list of tokens lexed from a shared source. Each
+ * token is stored as three ints (type, start and length) instead of a {@link
+ * Token} object holding a copy of its literal; literals are only materialized
+ * when requested with {@link #getLiteral(int)}. The {@link Token.Kind} is
+ * packed into the upper bits of the type. Values decoded by the lexer are kept
+ * in a separate array, which is only allocated once a token has one.
+ *
+ * As a {@code List<Token>}, {@link #get(int)} returns a {@link Token} view over
+ * the buffer slot. The {@link Parser} reads the arrays directly instead, which
+ * avoids allocating while matching.
+ *
+ * Tokens lexed from a {@link java.io.Reader} have no shared source, in which
+ * case their literals are stored alongside the arrays.
+ */
+public final class TokenBuffer extends AbstractList<Token> {
+
+    private static final Token.Type[] TYPES = Token.Type.values();
+    private static final Token.Kind[] KINDS = Token.Kind.values();
+
+    private CharSequence source;
+    private int[] types = new int[64];
+    private int[] starts = new int[64];
+    private int[] lengths = new int[64];
+    private String[] literals;
+    private Object[] values;
+    private int size = 0;
+
+    public TokenBuffer(CharSequence source) {
+        this.source = source;
+        this.literals = source == null ? new String[64] : null;
+    }
+
+    /**
+     * Clears the buffer for tokens over a new source, keeping its arrays.
+     */
+    void reset(CharSequence source) {
+        if (values != null) {
+            Arrays.fill(values, 0, size, null);
+        }
+        if (source == null) {
+            if (literals == null) {
+                literals = new String[types.length];
+            } else {
+                Arrays.fill(literals, 0, size, null);
+            }
+        } else {
+            literals = null;
+        }
+        this.source = source;
+        this.size = 0;
+    }
+
+    public CharSequence getSource() {
+        return source;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Token get(int index) {
+        checkIndex(index);
+        if (source == null) {
+            return new Token(TYPES[types[index] & 0xFF], KINDS[types[index] >>> 8], value(index), literals[index], starts[index]);
+        }
+        return new Token(TYPES[types[index] & 0xFF], KINDS[types[index] >>> 8], value(index), source, starts[index], lengths[index]);
+    }
+
+    public Token.Type getType(int index) {
+        checkIndex(index);
+        return TYPES[types[index] & 0xFF];
+    }
+
+    public Token.Kind getKind(int index) {
+        checkIndex(index);
+        return KINDS[types[index] >>> 8];
+    }
+
+    public int getIndex(int index) {
+        checkIndex(index);
+        return starts[index];
+    }
+
+    public int getLength(int index) {
+        checkIndex(index);
+        return lengths[index];
+    }
+
+    public String getLiteral(int index) {
+        checkIndex(index);
+        if (source == null) {
+            return literals[index];
+        }
+        return source.subSequence(starts[index], starts[index] + lengths[index]).toString();
+    }
+
+    /**
+     * Returns the value of the token as in {@link Token#getValue()}, decoding
+     * it if the lexer did not. The decoded value is not stored, so a filled
+     * buffer is only read and may be shared by parsers on several threads,
+     * as it is for parallel and lazy parsing.
+     */
+    public Object getValue(int index) {
+        checkIndex(index);
+        Object value = value(index);
+        if (value == null) {
+            value = Lexer.decode(TYPES[types[index] & 0xFF], getLiteral(index));
+        }
+        return value;
+    }
+
+    private Object value(int index) {
+        return values != null ? values[index] : null;
+    }
+
+    /**
+     * Returns true if the literal of the token equals the given string,
+     * comparing against the source without allocating.
+     */
+    public boolean literalEquals(int index, String string) {
+        checkIndex(index);
+        if (source == null) {
+            return literals[index].equals(string);
+        }
+        return Token.regionEquals(source, starts[index], lengths[index], string);
+    }
+
+    /**
+     * Appends a token. The literal is only stored (and required) if the buffer
+     * has no shared source.
+     */
+    void add(Token.Type type, Token.Kind kind, Object value, int start, int length, String literal) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            if (literals != null) {
+                literals = Arrays.copyOf(literals, capacity);
+            }
+            if (values != null) {
+                values = Arrays.copyOf(values, capacity);
+            }
+        }
+        types[size] = type.ordinal() | kind.ordinal() << 8;
+        starts[size] = start;
+        lengths[size] = length;
+        if (literals != null) {
+            literals[size] = literal;
+        }
+        if (value != null) {
+            if (values == null)
+                values = new Object[types.length];
+            values[size] = value;
+        }
+        size++;
+    }
+
+    /**
+     * Appends all tokens of another buffer over the same source.
+     */
+    void addAll(TokenBuffer tokens) {
+        int size = this.size + tokens.size;
+        if (size > types.length) {
+            int capacity = Math.max(size, types.length * 2);
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            if (literals != null) {
+                literals = Arrays.copyOf(literals, capacity);
+            }
+            if (values != null) {
+                values = Arrays.copyOf(values, capacity);
+            }
+        }
+        System.arraycopy(tokens.types, 0, types, this.size, tokens.size);
+        System.arraycopy(tokens.starts, 0, starts, this.size, tokens.size);
+        System.arraycopy(tokens.lengths, 0, lengths, this.size, tokens.size);
+        if (literals != null) {
+            System.arraycopy(tokens.literals, 0, literals, this.size, tokens.size);
+        }
+        if (tokens.values != null) {
+            if (values == null)
+                values = new Object[types.length];
+            System.arraycopy(tokens.values, 0, values, this.size, tokens.size);
+        }
+        this.size = size;
+    }
+
+    /**
+     * Creates a buffer over the source of {@code replacement} made of tokens
+     * {@code [0, first)} of {@code previous}, then the tokens of replacement,
+     * then tokens {@code [resume, size)} of previous with their starts shifted
+     * by delta.
+     */
+    static TokenBuffer splice(TokenBuffer previous, int first, TokenBuffer replacement, int resume, int delta) {
+        TokenBuffer tokens = new TokenBuffer(replacement.source);
+        int tail = previous.size - resume;
+        int size = first + replacement.size + tail;
+        int capacity = Math.max(size, 64);
+        tokens.types = new int[capacity];
+        tokens.starts = new int[capacity];
+        tokens.lengths = new int[capacity];
+        int[][] from = {previous.types, previous.starts, previous.lengths};
+        int[][] with = {replacement.types, replacement.starts, replacement.lengths};
+        int[][] to = {tokens.types, tokens.starts, tokens.lengths};
+        for (int i = 0; i < to.length; i++) {
+            System.arraycopy(from[i], 0, to[i], 0, first);
+            System.arraycopy(with[i], 0, to[i], first, replacement.size);
+            System.arraycopy(from[i], resume, to[i], first + replacement.size, tail);
+        }
+        if (previous.values != null || replacement.values != null) {
+            tokens.values = new Object[capacity];
+            if (previous.values != null) {
+                System.arraycopy(previous.values, 0, tokens.values, 0, first);
+                System.arraycopy(previous.values, resume, tokens.values, first + replacement.size, tail);
+            }
+            if (replacement.values != null) {
+                System.arraycopy(replacement.values, 0, tokens.values, first, replacement.size);
+            }
+        }
+        for (int i = first + replacement.size; i < size; i++) {
+            tokens.starts[i] += delta;
+        }
+        tokens.size = size;
+        return tokens;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package plc.project;
+
+import java.util.Arrays;
+
+/**
+ * A pull-based source of tokens, lexed on demand from a {@link Lexer} instead
+ * of materializing the whole {@code List<Token>} with {@link Lexer#lex()}.
+ *
+ * Only a bounded window of tokens is kept in a ring buffer: up to {@code
+ * lookbehind} tokens before the current one and {@code lookahead} tokens from
+ * the current one onwards. This keeps memory proportional to the window rather
+ * than the input, and lets lexing overlap with parsing.
+ *
+ * Since tokens are lexed lazily, a {@link ParseException} from the lexer is
+ * thrown when the offending token is first requested rather than before
+ * parsing begins.
+ */
+public final class TokenSource {
+
+    private final Lexer lexer;
+    private final Token[] buffer;
+    private final int lookbehind;
+    private final int lookahead;
+    private int index = 0;
+    private int size = 0;
+    private boolean exhausted = false;
+
+    public TokenSource(Lexer lexer) {
+        this(lexer, 1, 2);
+    }
+
+    public TokenSource(Lexer lexer, int lookbehind, int lookahead) {
+        if (lookbehind < 0 || lookahead < 1) {
+            throw new IllegalArgumentException("Invalid window " + lookbehind + "/" + lookahead + ".");
+        }
+        this.lexer = lexer;
+        this.buffer = new Token[lookbehind + lookahead];
+        this.lookbehind = lookbehind;
+        this.lookahead = lookahead;
+    }
+
+    /**
+     * Restarts the source after its lexer has been {@link Lexer#reset reset},
+     * reusing the ring buffer.
+     */
+    public void reset() {
+        Arrays.fill(buffer, null);
+        index = 0;
+        size = 0;
+        exhausted = false;
+    }
+
+    /**
+     * Returns true if there is a token at index + offset, lexing ahead as
+     * needed. As with {@link #get(int)}, the offset must be within the window
+     * of {@code -lookbehind} (inclusive) to {@code lookahead} (exclusive),
+     * otherwise {@link IllegalArgumentException} is thrown: the tokens
+     * outside of it have been dropped or not lexed yet, so whether there is
+     * one cannot be answered.
+     */
+    public boolean has(int offset) {
+        checkWindow(offset);
+        fill(offset);
+        return index + offset >= 0 && index + offset < size;
+    }
+
+    /**
+     * Gets the token at index + offset, which must be within the window as
+     * for {@link #has(int)}. Throws {@link IndexOutOfBoundsException} past
+     * the end of the input, as {@code List.get} does.
+     */
+    public Token get(int offset) {
+        checkWindow(offset);
+        fill(offset);
+        int position = index + offset;
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Index " + position + " out of bounds for length " + size);
+        }
+        return buffer[position % buffer.length];
+    }
+
+    /**
+     * Advances to the next token, incrementing the index.
+     */
+    public void advance() {
+        index++;
+    }
+
+    private void checkWindow(int offset) {
+        if (offset < -lookbehind || offset >= lookahead) {
+            throw new IllegalArgumentException("Offset " + offset + " is outside of the window.");
+        }
+    }
+
+    private void fill(int offset) {
+        while (!exhausted && size <= index + offset) {
+            Token token = lexer.lexNext();
+            if (token == null) {
+                exhausted = true;
+            } else {
+                buffer[size % buffer.length] = token;
+                size++;
+            }
+        }
+    }
+
+}
@@ -1,14 +1,24 @@
 package plc.project;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
@@ -549,6 +559,154 @@ public final class AnalyzerTests {
         );
     }
 
+    @Test
+    public void testReachableOnly() {
+        String input = "FUN used(): Integer DO RETURN 1; END\n" +
+                "FUN unused(): Integer DO RETURN TRUE; END\n" +
+                "FUN main(): Integer DO RETURN used(); END";
+        Assertions.assertThrows(RuntimeException.class,
+                () -> new Analyzer(new Scope(null)).visit(new Parser(new Lexer(input).lex()).parseSource()));
+        Parser parser = new Parser(new Lexer(input).lex());
+        parser.setLazy(true);
+        Ast.Source ast = parser.parseSource();
+        Analyzer analyzer = new Analyzer(new Scope(null));
+        analyzer.setReachableOnly(true);
+        analyzer.visit(ast);
+        Assertions.assertTrue(ast.getFunctions().get(0).isLoaded());
+        Assertions.assertFalse(ast.getFunctions().get(1).isLoaded());
+        Assertions.assertEquals(ast.getFunctions().get(0).getFunction(), analyzer.scope.lookupFunction("used", 0));
+        Assertions.assertEquals(Environment.Type.INTEGER, ((Ast.Statement.Return) ast.getFunctions().get(2).getStatements().get(0)).getValue().getType());
+    }
+
+    @Test
+    public void testFile() throws IOException {
+        String input = "VAR total: Integer = 0;\n" +
+                "FUN add(x: Integer): Integer DO total = total + x; RETURN total; END\n" +
+                "FUN main(): Integer DO LET s: String = \"s\"; print(s); RETURN add(1); END";
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        Path path = Files.createTempFile("source", ".ast");
+        AstFile.write(ast, path);
+        Ast.Source loaded = AstFile.read(path);
+        Assertions.assertEquals(ast, loaded);
+        Ast.Statement.Assignment assignment = (Ast.Statement.Assignment) loaded.getFunctions().get(0).getStatements().get(0);
+        Assertions.assertSame(loaded.getGlobals().get(0).getVariable(), ((Ast.Expression.Access) assignment.getReceiver()).getVariable());
+        Assertions.assertSame(Environment.Type.INTEGER, loaded.getFunctions().get(0).getFunction().getReturnType());
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        buffer.putInt(4, AstFile.VERSION + 1);
+        Files.write(path, buffer.array());
+        Assertions.assertThrows(IOException.class, () -> AstFile.read(path));
+        AstFile.write(ast, path);
+        byte[] bytes = Files.readAllBytes(path);
+        for (int length = 0; length < bytes.length; length++) {
+            Files.write(path, Arrays.copyOf(bytes, length));
+            Assertions.assertThrows(IOException.class, () -> AstFile.map(path));
+        }
+        ByteBuffer corrupt = ByteBuffer.wrap(bytes.clone());
+        corrupt.putInt(12, Integer.MAX_VALUE);
+        Files.write(path, corrupt.array());
+        Assertions.assertThrows(IOException.class, () -> AstFile.map(path));
+        Files.delete(path);
+    }
+
+    @Test
+    public void testFileDeepNesting() throws IOException {
+        String chain = String.join(" + ", Collections.nCopies(100001, "1"));
+        Ast.Source ast = new Parser(new Lexer("FUN main(): Integer DO RETURN " + chain + "; END").lexBuffer()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        Path path = Files.createTempFile("source", ".ast");
+        AstFile.write(ast, path);
+        Ast.Source loaded = AstFile.read(path);
+        Files.delete(path);
+        Ast.Expression expression = ((Ast.Statement.Return) loaded.getFunctions().get(0).getStatements().get(0)).getValue();
+        for (int i = 0; i < 100000; i++) {
+            Assertions.assertEquals(Environment.Type.INTEGER, expression.getType());
+            Assertions.assertEquals(BigInteger.ONE, ((Ast.Expression.Literal) ((Ast.Expression.Binary) expression).getRight()).getLiteral());
+            expression = ((Ast.Expression.Binary) expression).getLeft();
+        }
+        Assertions.assertEquals(Environment.Type.INTEGER, expression.getType());
+    }
+
+    @Test
+    public void testIntern() {
+        String input = "FUN f(x: Integer): Integer DO RETURN x + (1 + 2); END\n" +
+                "FUN g(x: Decimal): Decimal DO RETURN x * 1.0 + x; END\n" +
+                "FUN main(): Integer DO RETURN f(1 + 2); END";
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        AstInterner interner = new AstInterner();
+        Ast.Source interned = interner.intern(ast);
+        Assertions.assertEquals(ast, interned);
+        Ast.Expression.Binary f = (Ast.Expression.Binary) ((Ast.Statement.Return) interned.getFunctions().get(0).getStatements().get(0)).getValue();
+        Ast.Expression.Binary g = (Ast.Expression.Binary) ((Ast.Statement.Return) interned.getFunctions().get(1).getStatements().get(0)).getValue();
+        Ast.Expression.Function main = (Ast.Expression.Function) ((Ast.Statement.Return) interned.getFunctions().get(2).getStatements().get(0)).getValue();
+        Assertions.assertSame(((Ast.Expression.Group) f.getRight()).getExpression(), main.getArguments().get(0));
+        Assertions.assertNotSame(f.getLeft(), ((Ast.Expression.Binary) g.getLeft()).getLeft());
+        Assertions.assertEquals(3, interner.getShared());
+        new Analyzer(new Scope(null)).visit(interned);
+        new Analyzer(new Scope(null)).visit(ast);
+        Assertions.assertEquals(ast, interned);
+        Assertions.assertEquals(Environment.Type.INTEGER, f.getLeft().getType());
+        Assertions.assertEquals(Environment.Type.DECIMAL, g.getRight().getType());
+        Ast.Expression.Binary analyzed = (Ast.Expression.Binary) ((Ast.Statement.Return) interner.intern(interned).getFunctions().get(1).getStatements().get(0)).getValue();
+        Assertions.assertSame(((Ast.Expression.Binary) analyzed.getLeft()).getLeft(), analyzed.getRight());
+    }
+
+    @Test
+    public void testInternDeepNesting() {
+        String chain = String.join(" + ", Collections.nCopies(100001, "1"));
+        Ast.Source ast = new Parser(new Lexer("FUN main(): Integer DO RETURN " + chain + "; END").lexBuffer()).parseSource();
+        AstInterner interner = new AstInterner();
+        Ast.Source interned = interner.intern(ast);
+        Assertions.assertEquals(200001, interner.getNodes());
+        Assertions.assertEquals(100000, interner.getShared());
+        Ast.Expression.Binary root = (Ast.Expression.Binary) ((Ast.Statement.Return) interned.getFunctions().get(0).getStatements().get(0)).getValue();
+        Ast.Expression expression = root;
+        for (int i = 0; i < 100000; i++) {
+            Assertions.assertSame(root.getRight(), ((Ast.Expression.Binary) expression).getRight());
+            expression = ((Ast.Expression.Binary) expression).getLeft();
+        }
+        Assertions.assertSame(root.getRight(), expression);
+    }
+
+    @Test
+    public void testAnnotations() throws Exception {
+        String input = "VAR total: Integer = 0;\n" +
+                "FUN f(x: Integer): Integer DO LET y = x * 2; RETURN y + total; END\n" +
+                "FUN main(): Integer DO print(\"done\"); RETURN f(1 + 2); END";
+        Ast.Source expected = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(expected);
+        StringWriter generated = new StringWriter();
+        new Generator(new PrintWriter(generated)).visit(expected);
+
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        List<Thread> threads = new ArrayList<>();
+        List<String> results = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 4; i++) {
+            threads.add(new Thread(() -> {
+                Annotations annotations = Annotations.table();
+                new Analyzer(new Scope(null), annotations).visit(ast);
+                StringWriter writer = new StringWriter();
+                new Generator(new PrintWriter(writer), annotations).visit(ast);
+                results.add(writer.toString());
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertEquals(Collections.nCopies(4, generated.toString()), results);
+        Assertions.assertThrows(IllegalStateException.class, () -> ast.getGlobals().get(0).getVariable());
+        Assertions.assertThrows(IllegalStateException.class, () -> ast.getFunctions().get(1).getFunction());
+        Ast.Expression value = ((Ast.Statement.Return) ast.getFunctions().get(0).getStatements().get(1)).getValue();
+        Assertions.assertThrows(IllegalStateException.class, value::getType);
+        Annotations annotations = Annotations.table();
+        new Analyzer(new Scope(null), annotations).visit(ast);
+        Assertions.assertEquals(Environment.Type.INTEGER, annotations.getType(value));
+        Assertions.assertSame(annotations.getVariable(ast.getGlobals().get(0)), annotations.getVariable(((Ast.Expression.Binary) value).getRight()));
+    }
+
     /**
      * Helper function for tests. If {@param expected} is {@code null}, analysis
      * is expected to throw a {@link RuntimeException}.
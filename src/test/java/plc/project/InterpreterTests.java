@@ -8,9 +8,12 @@ import org.junit.jupiter.params.provider.MethodSource;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -65,6 +68,23 @@ final class InterpreterTests {
         );
     }
 
+    @Test
+    void testDeepNesting() {
+        int depth = 100000;
+        String calls = String.join("", Collections.nCopies(1000, "f(")) + "1" + String.join("", Collections.nCopies(1000, ")"));
+        StringBuilder input = new StringBuilder("FUN f(x: Integer): Integer DO RETURN x; END\nFUN main(): Integer DO RETURN ").append(calls);
+        for (int i = 0; i < depth; i++) {
+            input.append(" + (1 + 1)");
+        }
+        input.append("; END");
+        Ast.Source ast = new Parser(new Lexer(input.toString()).lexBuffer()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        Assertions.assertEquals(BigInteger.valueOf(2 * depth + 1), new Interpreter(new Scope(null)).visit(ast).getValue());
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(ast);
+        Assertions.assertTrue(writer.toString().contains("return " + calls + " + (1 + 1) + (1 + 1)"));
+    }
+
     @Test
     void testList() {
         // LIST list = [1, 5, 10];
@@ -6,8 +6,16 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
 
 public class LexerTests {
@@ -148,6 +156,178 @@ public class LexerTests {
         );
     }
 
+    @ParameterizedTest
+    @MethodSource
+    void testTableMode(String test, String input) {
+        Object regex, table;
+        try {
+            regex = new Lexer(input, Lexer.Mode.REGEX).lex();
+        } catch (ParseException e) {
+            regex = e.getMessage() + "@" + e.getIndex();
+        }
+        try {
+            table = new Lexer(input, Lexer.Mode.TABLE).lex();
+        } catch (ParseException e) {
+            table = e.getMessage() + "@" + e.getIndex();
+        }
+        Assertions.assertEquals(regex, table);
+    }
+
+    private static Stream<Arguments> testTableMode() {
+        return Stream.of(
+                Arguments.of("Example", "LET x = 5;\nprint(\"Hello, World!\");"),
+                Arguments.of("Operators", "a != b == c && d || e <= f"),
+                Arguments.of("Numbers", "1 -1 0.05 -.05 -. 01"),
+                Arguments.of("Characters", "'c' '\\n' '\n' 'a\\t'"),
+                Arguments.of("Escapes", "\"a\\b\\n\\r\\t\\'\\\"\\\\\""),
+                Arguments.of("Identifiers", "@name thelegend27 a_b-c"),
+                Arguments.of("Empty Char", "''"),
+                Arguments.of("Trailing Decimal", "1."),
+                Arguments.of("Invalid Number", "a - b"),
+                Arguments.of("Invalid Escape", "\"invalid\\escape\""),
+                Arguments.of("Unterminated String", "\"unterminated\n"),
+                Arguments.of("Missing Single Quote", "'ab'")
+        );
+    }
+
+    @Test
+    void testPathAndReader() throws IOException {
+        String input = "VAR first: Integer = 1;\nFUN main(): Integer DO\n    print(\"Hello, World!\");\nEND";
+        Path path = Files.createTempFile("lexer", ".plc");
+        path.toFile().deleteOnExit();
+        Files.write(path, input.getBytes(StandardCharsets.US_ASCII));
+        List<Token> expected = new Lexer(input).lex();
+        Assertions.assertEquals(expected, new Lexer(path).lex());
+        Assertions.assertEquals(expected, new Lexer(new StringReader(input)).lex());
+        Assertions.assertEquals(expected, new Lexer(path).lexBuffer());
+        Assertions.assertEquals(expected, new Lexer(new StringReader(input)).lexBuffer());
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testRelex(String test, String input, int offset, int removed, String inserted) {
+        String edited = input.substring(0, offset) + inserted + input.substring(offset + removed);
+        List<Token> expected = new Lexer(edited).lex();
+        Assertions.assertEquals(expected, new Lexer(edited).relex(new Lexer(input).lex(), offset, removed, inserted.length()));
+        Assertions.assertEquals(expected, new Lexer(edited).relex(new Lexer(input).lexBuffer(), offset, removed, inserted.length()));
+    }
+
+    private static Stream<Arguments> testRelex() {
+        String input = "LET x = 5;\nprint(\"Hello, World!\");\nx = x + 10;";
+        return Stream.of(
+                Arguments.of("Extend Identifier", input, 5, 0, "yz"),
+                Arguments.of("Split Identifier", input, 13, 0, " "),
+                Arguments.of("Extend Number", input, 9, 0, ".5"),
+                Arguments.of("Combine Operator", input, 7, 0, "="),
+                Arguments.of("Insert String", input, 11, 0, "\"a\" "),
+                Arguments.of("Delete Line", input, 10, 25, ""),
+                Arguments.of("Replace All", input, 0, input.length(), "VAR y: Integer;"),
+                Arguments.of("Append", input, input.length(), 0, " print(x);")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testKind(String test, String input, Token.Kind expected) {
+        Assertions.assertEquals(expected, new Lexer(input).lexToken().getKind());
+        Assertions.assertEquals(expected, new Lexer(input).lexBuffer().getKind(0));
+    }
+
+    private static Stream<Arguments> testKind() {
+        return Stream.of(
+                Arguments.of("Keyword", "VAR", Token.Kind.VAR),
+                Arguments.of("Same Length Keyword", "VAL", Token.Kind.VAL),
+                Arguments.of("Longest Keyword", "DEFAULT", Token.Kind.DEFAULT),
+                Arguments.of("Keyword Prefix", "DOX", Token.Kind.NONE),
+                Arguments.of("Lowercase Keyword", "list", Token.Kind.NONE),
+                Arguments.of("Operator", "!=", Token.Kind.NOT_EQUAL),
+                Arguments.of("Unused Operator", "$", Token.Kind.NONE),
+                Arguments.of("Literal", "\"DO\"", Token.Kind.NONE)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testValue(String test, String input, Object expected) {
+        Assertions.assertEquals(expected, new Lexer(input).lexToken().getValue());
+        Assertions.assertEquals(expected, new Lexer(input).lexBuffer().getValue(0));
+        Assertions.assertEquals(expected, new Lexer(input, Lexer.Mode.REGEX).lexToken().getValue());
+    }
+
+    private static Stream<Arguments> testValue() {
+        return Stream.of(
+                Arguments.of("Integer", "-123", new BigInteger("-123")),
+                Arguments.of("Overflow", "123456789012345678901", new BigInteger("123456789012345678901")),
+                Arguments.of("Decimal", "-.050", new BigDecimal("-.050")),
+                Arguments.of("Character", "'c'", 'c'),
+                Arguments.of("Escaped Character", "'\\t'", '\t'),
+                Arguments.of("String", "\"abc\"", "abc"),
+                Arguments.of("Escaped String", "\"a\\b\\n\\r\\t\\'\\\"\\\\\"", "a\b\n\r\t'\"\\"),
+                Arguments.of("Identifier", "abc", null)
+        );
+    }
+
+    @Test
+    void testStats() {
+        Lexer lexer = new Lexer("LET x = 5;\nprint(\"Hello, World!\");");
+        LexerStats stats = new LexerStats();
+        lexer.setListener(stats);
+        lexer.lex();
+        Assertions.assertEquals(3, stats.getTokens(Token.Type.IDENTIFIER));
+        Assertions.assertEquals(1, stats.getTokens(Token.Type.STRING));
+        Assertions.assertEquals(10, stats.getTokens());
+        Assertions.assertEquals(34, stats.getConsumed());
+    }
+
+    @Test
+    void testParallel() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            builder.append("LET x").append(i).append(" = '\n';\nprint(\"Hello, World!\", -.5);\n");
+        }
+        String input = builder.toString();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Assertions.assertEquals(new Lexer(input).lexBuffer(), new Lexer(input).lexParallel(pool));
+            String invalid = input + "\"unterminated";
+            ParseException exception = Assertions.assertThrows(ParseException.class,
+                    () -> new Lexer(invalid).lexParallel(pool));
+            Assertions.assertEquals(invalid.length(), exception.getIndex());
+            LexerStats expected = new LexerStats();
+            Lexer lexer = new Lexer(invalid);
+            lexer.setListener(expected);
+            Assertions.assertThrows(ParseException.class, lexer::lexBuffer);
+            LexerStats stats = new LexerStats();
+            Lexer parallel = new Lexer(invalid);
+            parallel.setListener(stats);
+            Assertions.assertThrows(ParseException.class, () -> parallel.lexParallel(pool));
+            Assertions.assertEquals(expected.getTokens(), stats.getTokens());
+            Assertions.assertEquals(expected.getTokens(Token.Type.STRING), stats.getTokens(Token.Type.STRING));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testLines(String test, int offset, String expected) {
+        String input = "LET x = 5;\r\nprint(x);\n\n\"unterminated";
+        Assertions.assertEquals(expected, new Lexer(input).getLines().format(offset));
+        Lexer reader = new Lexer(new StringReader(input));
+        Assertions.assertThrows(ParseException.class, reader::lex);
+        Assertions.assertEquals(expected, reader.getLines().format(offset));
+    }
+
+    private static Stream<Arguments> testLines() {
+        return Stream.of(
+                Arguments.of("Start", 0, "1:1"),
+                Arguments.of("Carriage Return", 10, "1:11"),
+                Arguments.of("Second Line", 12, "2:1"),
+                Arguments.of("Empty Line", 22, "3:1"),
+                Arguments.of("End", 36, "4:14")
+        );
+    }
+
     @Test
     void testException() {
         ParseException exception = Assertions.assertThrows(ParseException.class,
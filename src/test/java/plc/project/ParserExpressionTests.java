@@ -114,10 +114,49 @@ final class ParserExpressionTests {
                 Arguments.of("Escape Character",
                         Arrays.asList(new Token(Token.Type.STRING, "\"Hello,\\nWorld!\"", 0)),
                         new Ast.Expression.Literal("Hello,\nWorld!")
+                ),
+                Arguments.of("All Escapes",
+                        Arrays.asList(new Token(Token.Type.STRING, "\"\\t\\r\\'\\\"\\\\\"", 0)),
+                        new Ast.Expression.Literal("\t\r'\"\\")
+                ),
+                Arguments.of("Escaped Character Literal",
+                        Arrays.asList(new Token(Token.Type.CHARACTER, "'\\n'", 0)),
+                        new Ast.Expression.Literal('\n')
                 )
         );
     }
 
+    @ParameterizedTest
+    @MethodSource
+    void testPrattMode(String test, String input) {
+        List<Token> tokens = new Lexer(input).lex();
+        Object descent, pratt;
+        try {
+            Parser parser = new Parser(tokens);
+            parser.setMode(Parser.Mode.DESCENT);
+            descent = parser.parseExpression();
+        } catch (ParseException e) {
+            descent = e.getMessage() + "@" + e.getIndex();
+        }
+        try {
+            pratt = new Parser(tokens).parseExpression();
+        } catch (ParseException e) {
+            pratt = e.getMessage() + "@" + e.getIndex();
+        }
+        Assertions.assertEquals(descent, pratt);
+    }
+
+    private static Stream<Arguments> testPrattMode() {
+        return Stream.of(
+                Arguments.of("Left Associative", "a + b + c"),
+                Arguments.of("Precedence", "a + b * c ^ d < e && f != g"),
+                Arguments.of("Descending Precedence", "a * b + c == d && e"),
+                Arguments.of("Group", "(a + b) * (c && d) / e"),
+                Arguments.of("Function", "f(a + b, c * d) > g[h]"),
+                Arguments.of("Missing Operand", "a + * b")
+        );
+    }
+
     @ParameterizedTest
     @MethodSource
     void testGroupExpression(String test, List<Token> tokens, Ast.Expression.Group expected) {
@@ -6,11 +6,20 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
@@ -537,6 +546,396 @@ final class ParserTests {
         test(input, expected, Parser::parseSource);
     }
 
+    @Test
+    void testTokenSource() {
+        String input = "VAR first: Integer = 1;\n" +
+                "FUN main(): Integer DO\n" +
+                "    WHILE first != 10 DO\n" +
+                "        print(first);\n" +
+                "        first = first + 1;\n" +
+                "    END\n" +
+                "END";
+        Ast.Source expected = new Parser(new Lexer(input).lex()).parseSource();
+        Assertions.assertEquals(expected, new Parser(new TokenSource(new Lexer(input))).parseSource());
+        Assertions.assertEquals(expected, new Parser(new Lexer(input).lexBuffer()).parseSource());
+
+        TokenSource source = new TokenSource(new Lexer(input));
+        for (int i = 0; i < 3; i++) {
+            source.advance();
+        }
+        Assertions.assertTrue(source.has(-1));
+        Assertions.assertTrue(source.has(1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> source.has(-2));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> source.has(2));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> source.get(-2));
+    }
+
+    @Test
+    void testReset() {
+        List<String> inputs = Arrays.asList(
+                "VAR first: Integer = 1;\nFUN main(): Integer DO\n    print(first);\nEND",
+                "VAL name: String = \"unterminated",
+                "FUN main(): Integer DO\n    WHILE x != 10 DO\n        x = x + 1;\n    END\nEND",
+                "LIST list: Integer = [1, 2, 3];"
+        );
+        Lexer lexer = new Lexer("");
+        TokenBuffer buffer = lexer.lexBuffer();
+        Parser parser = new Parser(buffer);
+        TokenSource source = new TokenSource(lexer);
+        Parser pulling = new Parser(source);
+        for (String input : inputs) {
+            Ast.Source expected;
+            try {
+                expected = new Parser(new Lexer(input).lex()).parseSource();
+            } catch (ParseException e) {
+                lexer.reset(input);
+                Assertions.assertThrows(ParseException.class, () -> lexer.lexBuffer(buffer));
+                continue;
+            }
+            lexer.reset(input);
+            parser.reset(lexer.lexBuffer(buffer));
+            Assertions.assertEquals(expected, parser.parseSource());
+            lexer.reset(input);
+            source.reset();
+            pulling.reset(source);
+            Assertions.assertEquals(expected, pulling.parseSource());
+        }
+    }
+
+    @Test
+    void testParallel() {
+        StringBuilder builder = new StringBuilder("VAR counter: Integer = 0;\n");
+        for (int i = 0; i < 400; i++) {
+            builder.append("FUN f").append(i).append("(a: Integer): Integer DO\n");
+            builder.append("    SWITCH a CASE 1: a = a + ").append(i).append("; DEFAULT RETURN a; END\n");
+            builder.append("    WHILE a > 0 DO a = a / 2; END\n");
+            builder.append("    RETURN a;\nEND\n");
+        }
+        String input = builder.toString();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Ast.Source expected = new Parser(new Lexer(input).lex()).parseSource();
+            Assertions.assertEquals(expected, new Parser(new Lexer(input).lex()).parseSourceParallel(pool));
+            Assertions.assertEquals(expected, new Parser(new Lexer(input).lexBuffer()).parseSourceParallel(pool));
+            for (String broken : Arrays.asList(
+                    input.replace("FUN f350(a:", "FUN f350(a"),
+                    input.replace("RETURN a;\nEND\nFUN f300", "RETURN a;\nEND END\nFUN f300"),
+                    input.replace("FUN f20(", "FUN f20 DO (").replace("FUN f380(", "FUN (")
+            )) {
+                ParseException sequential = Assertions.assertThrows(ParseException.class,
+                        () -> new Parser(new Lexer(broken).lex()).parseSource());
+                ParseException parallel = Assertions.assertThrows(ParseException.class,
+                        () -> new Parser(new Lexer(broken).lex()).parseSourceParallel(pool));
+                Assertions.assertEquals(sequential.getMessage(), parallel.getMessage());
+                Assertions.assertEquals(sequential.getIndex(), parallel.getIndex());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testReducer() {
+        StringBuilder builder = new StringBuilder("VAR counter: Integer = 0;\nLIST values: Integer = [1, 2];\n");
+        for (int i = 0; i < 400; i++) {
+            builder.append("FUN f").append(i).append("(a: Integer): Integer DO\n");
+            builder.append("    IF a == ").append(i).append(" DO print(a, 1, f(a + 1, 2)); ELSE a = a + 1; END\n");
+            builder.append("    RETURN a * ").append(i).append(";\nEND\n");
+        }
+        Ast.Source source = new Parser(new Lexer(builder.toString()).lex()).parseSource();
+        AstReducer<List<Object>> literals = new AstReducer<List<Object>>() {
+
+            @Override
+            protected List<Object> identity() {
+                return Collections.emptyList();
+            }
+
+            @Override
+            protected List<Object> node(Ast ast) {
+                return ast instanceof Ast.Expression.Literal
+                        ? Collections.singletonList(((Ast.Expression.Literal) ast).getLiteral())
+                        : Collections.emptyList();
+            }
+
+            @Override
+            protected List<Object> combine(List<Object> left, List<Object> right) {
+                if (left.isEmpty() || right.isEmpty())
+                    return left.isEmpty() ? right : left;
+                List<Object> combined = new ArrayList<>(left);
+                combined.addAll(right);
+                return combined;
+            }
+
+        };
+        literals.setThreshold(8);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<Object> expected = literals.reduce(source);
+            Assertions.assertEquals(3 + 400 * 6, expected.size());
+            Assertions.assertEquals(Arrays.asList(BigInteger.ZERO, BigInteger.ONE, new BigInteger("2"), BigInteger.ZERO, BigInteger.ONE),
+                    expected.subList(0, 5));
+            Assertions.assertEquals(expected, literals.reduceParallel(source, pool));
+        } finally {
+            pool.shutdown();
+        }
+
+        AstReducer<Integer> signatures = new AstReducer<Integer>() {
+
+            @Override
+            protected Integer identity() {
+                return 0;
+            }
+
+            @Override
+            protected Integer node(Ast ast) {
+                return 1;
+            }
+
+            @Override
+            protected Integer combine(Integer left, Integer right) {
+                return left + right;
+            }
+
+            @Override
+            protected boolean prune(Ast ast) {
+                return ast instanceof Ast.Function;
+            }
+
+        };
+        Assertions.assertEquals(1 + 2 + 4 + 400, (int) signatures.reduceParallel(source));
+        Assertions.assertEquals(2 * 100000 + 1, (int) signatures.reduce(
+                new Parser(new Lexer(String.join(" + ", Collections.nCopies(100001, "1"))).lex()).parseExpression()));
+    }
+
+    @Test
+    void testLazy() {
+        String valid = "FUN main(): Integer DO\n    SWITCH x CASE 1: f(); DEFAULT g(); END\n    RETURN 0;\nEND\n" +
+                "FUN after() DO\n    WHILE x DO IF y DO x = 1; END END\nEND";
+        String input = valid.replace("FUN after", "FUN broken() DO\n    x = ;\nEND\nFUN after");
+        Ast.Source expected = new Parser(new Lexer(valid).lex()).parseSource();
+        ParseException eager = Assertions.assertThrows(ParseException.class,
+                () -> new Parser(new Lexer(input).lex()).parseSource());
+        Parser parser = new Parser(new Lexer(input).lexBuffer());
+        parser.setLazy(true);
+        Ast.Source source = parser.parseSource();
+        Assertions.assertEquals(3, source.getFunctions().size());
+        source.getFunctions().forEach(function -> Assertions.assertFalse(function.isLoaded()));
+        Ast.Function broken = source.getFunctions().get(1);
+        ParseException lazy = Assertions.assertThrows(ParseException.class, broken::getStatements);
+        Assertions.assertEquals(eager.getMessage(), lazy.getMessage());
+        Assertions.assertEquals(eager.getIndex(), lazy.getIndex());
+        Assertions.assertFalse(broken.isLoaded());
+        Assertions.assertEquals(expected.getFunctions().get(0), source.getFunctions().get(0));
+        Assertions.assertEquals(expected.getFunctions().get(1), source.getFunctions().get(2));
+        Assertions.assertTrue(source.getFunctions().get(0).isLoaded());
+
+        for (String stray : Arrays.asList("ELSE", "DEFAULT")) {
+            String misplaced = valid.replace("FUN after", "FUN broken() DO\n    " + stray + "\nEND\nFUN after");
+            eager = Assertions.assertThrows(ParseException.class, () -> new Parser(new Lexer(misplaced).lex()).parseSource());
+            parser = new Parser(new Lexer(misplaced).lexBuffer());
+            parser.setLazy(true);
+            lazy = Assertions.assertThrows(ParseException.class, parser.parseSource().getFunctions().get(1)::getStatements);
+            Assertions.assertEquals(eager.getMessage(), lazy.getMessage());
+            Assertions.assertEquals(eager.getIndex(), lazy.getIndex());
+        }
+    }
+
+    @Test
+    void testDeepNesting() {
+        int depth = 100000;
+        StringBuilder chain = new StringBuilder("1");
+        StringBuilder groups = new StringBuilder();
+        StringBuilder calls = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            chain.append(" + 1");
+            groups.append("(x + ");
+            calls.append("f(");
+        }
+        groups.append("x").append(String.join("", Collections.nCopies(depth, ")")));
+        calls.append("x").append(String.join("", Collections.nCopies(depth, ")")));
+        Ast.Expression expression = new Parser(new Lexer(chain.toString()).lexBuffer()).parseExpression();
+        for (int i = 0; i < depth; i++) {
+            Assertions.assertEquals(new Ast.Expression.Literal(BigInteger.ONE), ((Ast.Expression.Binary) expression).getRight());
+            expression = ((Ast.Expression.Binary) expression).getLeft();
+        }
+        Assertions.assertEquals(new Ast.Expression.Literal(BigInteger.ONE), expression);
+        expression = new Parser(new Lexer(groups.toString()).lexBuffer()).parseExpression();
+        for (int i = 0; i < depth; i++) {
+            expression = ((Ast.Expression.Binary) ((Ast.Expression.Group) expression).getExpression()).getRight();
+        }
+        Assertions.assertEquals(new Ast.Expression.Access(Optional.empty(), "x"), expression);
+        expression = new Parser(new Lexer(calls.toString()).lexBuffer()).parseExpression();
+        for (int i = 0; i < depth; i++) {
+            expression = ((Ast.Expression.Function) expression).getArguments().get(0);
+        }
+        Assertions.assertEquals(new Ast.Expression.Access(Optional.empty(), "x"), expression);
+        for (String input : Arrays.asList(chain.toString(), groups.toString(), calls.toString())) {
+            Ast.Expression first = new Parser(new Lexer(input).lexBuffer()).parseExpression();
+            Assertions.assertEquals(first, new Parser(new Lexer(input).lexBuffer()).parseExpression());
+            Assertions.assertNotEquals(first, new Parser(new Lexer(input.replaceFirst("1|x", "2")).lexBuffer()).parseExpression());
+        }
+        String mixed = "(1 + g(x)) * f(2, (y), h(3) + 4)";
+        Ast.Expression expected = new Parser(new Lexer(mixed).lex()).parseExpression();
+        Assertions.assertEquals(expected, new Parser(new Lexer(mixed).lex()).parseExpression());
+        Assertions.assertNotEquals(expected, new Parser(new Lexer(mixed.replace("h(3)", "h(5)")).lex()).parseExpression());
+        Assertions.assertNotEquals(expected, new Parser(new Lexer(mixed.replace("(y)", "y")).lex()).parseExpression());
+        Ast.Expression.Binary typed = (Ast.Expression.Binary) new Parser(new Lexer(mixed).lex()).parseExpression();
+        ((Ast.Expression.Binary) ((Ast.Expression.Function) typed.getRight()).getArguments().get(2)).setType(Environment.Type.INTEGER);
+        Assertions.assertEquals(expected.hashCode(), typed.hashCode());
+        Assertions.assertNotEquals(expected, typed);
+    }
+
+    @Test
+    void testIncremental() {
+        String input = "VAR x: Integer = 1;\n" +
+                "FUN first() DO\n    print(x);\nEND\n" +
+                "FUN second() DO\n    x = 2;\nEND\n" +
+                "FUN third() DO\n    RETURN x;\nEND\n";
+        IncrementalParser parser = new IncrementalParser();
+        TokenBuffer tokens = new Lexer(input).lexBuffer();
+        Ast.Source source = parser.parse(tokens);
+        Assertions.assertEquals(new Parser(new Lexer(input).lex()).parseSource(), source);
+        // {text at the edit, removed characters, inserted text}
+        Object[][] edits = {
+                {"x = 2", 1, "y"},
+                {"\nFUN third", 0, "\nVAL z: Integer = 3;"},
+                {"END\nFUN second", "END\nFUN second() DO\n".length(), ""},
+                {"VAR", 0, "\n\n"},
+        };
+        for (Object[] edit : edits) {
+            int offset = input.indexOf((String) edit[0]);
+            int removed = (Integer) edit[1];
+            String inserted = (String) edit[2];
+            String edited = input.substring(0, offset) + inserted + input.substring(offset + removed);
+            TokenBuffer relexed = new Lexer(edited).relex(tokens, offset, removed, inserted.length());
+            Ast.Source expected = new Parser(new Lexer(edited).lex()).parseSource();
+            Ast.Source updated = parser.reparse(source, offset, removed, inserted.length(), relexed);
+            Assertions.assertEquals(expected, updated);
+            Assertions.assertSame(source.getFunctions().get(source.getFunctions().size() - 1),
+                    updated.getFunctions().get(updated.getFunctions().size() - 1));
+            input = edited;
+            tokens = relexed;
+            source = updated;
+        }
+        String broken = input.replace("RETURN x;", "RETURN ;");
+        int offset = input.indexOf("RETURN x;") + 7;
+        TokenBuffer relexed = new Lexer(broken).relex(tokens, offset, 1, 0);
+        Ast.Source previous = source;
+        Assertions.assertThrows(ParseException.class, () -> parser.reparse(previous, offset, 1, 0, relexed));
+        Assertions.assertEquals(source, parser.reparse(source, 0, 0, 0, tokens));
+    }
+
+    @Test
+    void testArena() {
+        String input = "VAR x: Integer;\nVAL y: Decimal = 1.0;\nLIST l: Integer = [1, 2];\n" +
+                "FUN f(a: Integer, b: String): Integer DO\n" +
+                "    LET c = 'c';\n    LET d: Boolean;\n    f(a, \"b\");\n    l[a] = (a + 1) * 2;\n" +
+                "    IF a < 1 && TRUE DO RETURN NIL; ELSE RETURN 1.5; END\n" +
+                "    SWITCH a CASE 1: x = 2; DEFAULT WHILE FALSE DO END END\nEND\n" +
+                "FUN main() DO\nEND";
+        Ast.Source source = new Parser(new Lexer(input).lex()).parseSource();
+        AstArena arena = AstArena.encode(source);
+        Ast.Source decoded = arena.decode();
+        Assertions.assertFalse(decoded.getFunctions().get(0).isLoaded());
+        Assertions.assertEquals(source, decoded);
+
+        int root = arena.getRoot();
+        Assertions.assertEquals(AstArena.Kind.SOURCE, arena.getKind(root));
+        Assertions.assertEquals(5, arena.getChildCount(root));
+        int global = arena.getChild(root, 1);
+        Assertions.assertEquals(AstArena.Kind.GLOBAL, arena.getKind(global));
+        Assertions.assertEquals("y", arena.getName(global));
+        Assertions.assertEquals("Decimal", arena.getTypeName(global));
+        Assertions.assertFalse(arena.isMutable(global));
+        Assertions.assertTrue(arena.isMutable(arena.getChild(root, 0)));
+        Assertions.assertEquals(-1, arena.getChild(arena.getChild(root, 0), 0));
+        Assertions.assertEquals(AstArena.Kind.LITERAL, arena.getKind(arena.getChild(global, 0)));
+        int function = arena.getChild(root, 3);
+        Assertions.assertEquals(AstArena.Kind.FUNCTION, arena.getKind(function));
+        Assertions.assertEquals("Integer", arena.getTypeName(function));
+        Assertions.assertEquals(3, arena.getChildCount(function));
+        Assertions.assertEquals("String", arena.getTypeName(arena.getChild(function, 1)));
+        int block = arena.getChild(function, 2);
+        Assertions.assertEquals(AstArena.Kind.BLOCK, arena.getKind(block));
+        int binary = arena.getChild(arena.getChild(block, 3), 1);
+        Assertions.assertEquals(AstArena.Kind.BINARY, arena.getKind(binary));
+        Assertions.assertEquals("*", arena.getName(binary));
+        Assertions.assertEquals(new BigInteger("2"), arena.getValue(arena.getChild(binary, 1)));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> arena.getChild(binary, 2));
+
+        String chain = String.join(" + ", Collections.nCopies(100001, "1"));
+        Ast.Source deep = AstArena.encode(new Parser(new Lexer("FUN main() DO RETURN " + chain + "; END").lexBuffer()).parseSource()).decode();
+        Ast.Expression expression = ((Ast.Statement.Return) deep.getFunctions().get(0).getStatements().get(0)).getValue();
+        for (int i = 0; i < 100000; i++) {
+            Assertions.assertEquals(new Ast.Expression.Literal(BigInteger.ONE), ((Ast.Expression.Binary) expression).getRight());
+            expression = ((Ast.Expression.Binary) expression).getLeft();
+        }
+        Assertions.assertEquals(new Ast.Expression.Literal(BigInteger.ONE), expression);
+    }
+
+    @Test
+    void testHashCode() {
+        String input = "VAR x: Integer = 1;\n" +
+                "FUN f(a: Integer): Integer DO\n    RETURN a * (x + 2);\nEND\n" +
+                "FUN main(): Integer DO\n    RETURN f(3);\nEND";
+        Ast.Source source = new Parser(new Lexer(input).lex()).parseSource();
+        Parser parser = new Parser(new Lexer(input).lexBuffer());
+        parser.setLazy(true);
+        Ast.Source lazy = parser.parseSource();
+        Assertions.assertEquals(source.hashCode(), lazy.hashCode());
+        Assertions.assertFalse(lazy.getFunctions().get(0).isLoaded());
+        Assertions.assertEquals(source, lazy);
+
+        Map<Ast, String> names = new HashMap<>();
+        names.put(source.getFunctions().get(0), "f");
+        names.put(((Ast.Statement.Return) source.getFunctions().get(1).getStatements().get(0)).getValue(), "call");
+        Ast.Source other = new Parser(new Lexer(input).lex()).parseSource();
+        Assertions.assertEquals("f", names.get(other.getFunctions().get(0)));
+        Assertions.assertEquals("call", names.get(new Ast.Expression.Function("f", Arrays.asList(new Ast.Expression.Literal(new BigInteger("3"))))));
+
+        Ast.Source changed = new Parser(new Lexer(input.replace("x + 2", "x + 3")).lex()).parseSource();
+        Assertions.assertEquals(source.hashCode(), changed.hashCode());
+        Assertions.assertNotEquals(source, changed);
+        Assertions.assertEquals(source.getFunctions().get(1), changed.getFunctions().get(1));
+
+        parser = new Parser(new Lexer(input.replace("x + 2", "x +")).lexBuffer());
+        parser.setLazy(true);
+        Ast.Source broken = parser.parseSource();
+        Set<Ast.Function> functions = new HashSet<>(broken.getFunctions());
+        Assertions.assertEquals(2, functions.size());
+        Assertions.assertFalse(broken.getFunctions().get(0).isLoaded());
+    }
+
+    @Test
+    void testPrinter() throws IOException {
+        Ast.Expression expression = new Parser(new Lexer("1 + f(2)").lex()).parseExpression();
+        String literal = "Ast.Expression.Literal{literal=1, type=null}";
+        String text = "Ast.Expression.Binary{operator='+', left=" + literal + ", right=Ast.Expression.Function{name='f', arguments=[" +
+                literal.replace('1', '2') + "], function=null}, type=null}";
+        Assertions.assertEquals(text, expression.toString());
+        StringWriter writer = new StringWriter();
+        new AstPrinter().print(expression, writer);
+        Assertions.assertEquals(text, writer.toString());
+
+        AstPrinter printer = new AstPrinter();
+        printer.setMaxDepth(1);
+        Assertions.assertEquals(text.replace(literal.replace('1', '2'), "..."), printer.print(expression));
+        printer.setMaxDepth(0);
+        Assertions.assertEquals("Ast.Expression.Binary{operator='+', left=..., right=..., type=null}", printer.print(expression));
+        printer = new AstPrinter();
+        printer.setMaxNodes(2);
+        Assertions.assertEquals(text.substring(0, text.indexOf("right=") + 6) + "...", printer.print(expression));
+
+        StringBuilder chain = new StringBuilder("1");
+        for (int i = 0; i < 100000; i++) {
+            chain.append(" + 1");
+        }
+        Ast.Expression deep = new Parser(new Lexer(chain.toString()).lexBuffer()).parseExpression();
+        Assertions.assertTrue(deep.toString().endsWith(", type=null}"));
+        printer.setMaxNodes(100);
+        Assertions.assertTrue(printer.print(deep).length() < 100 * 50);
+    }
+
     /**
      * Standard test function. If expected is null, a ParseException is expected
      * to be thrown (not used in the provided tests).